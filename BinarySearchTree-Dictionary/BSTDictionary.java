@@ -1,17 +1,28 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
 /**
  * BSTDictionary.java
  * Ali Ajwani
  * 
  * This class represents a dictionary implemented using a binary search tree.
+ * Next to the tree it keeps a radix trie of the labels, updated on every put and
+ * remove, which answers prefix questions by walking the prefix alone.
  */
 public class BSTDictionary implements BSTDictionaryADT {
     private BinarySearchTree bst;
+    private RadixTrie labels; // The labels of the records, for prefix search
 
     /**
      * This function initializes a new BSTDictionary with an empty binary search tree.
      */
     public BSTDictionary() {
         bst = new BinarySearchTree();
+        labels = new RadixTrie();
     }
 
     /**
@@ -35,6 +46,48 @@ public class BSTDictionary implements BSTDictionaryADT {
     @Override
     public void put(Record d) throws DictionaryException {
         bst.insert(bst.getRoot(), d);
+        labels.add(d.getKey().getLabel());
+    }
+
+    /**
+     * This function inserts many records at once. The records, together with the ones already in
+     * the dictionary, are sorted with Arrays.parallelSort, checked for duplicate keys in one pass
+     * and built into a perfectly balanced tree, which costs O(n log n) for the sort and O(n) for
+     * the rest instead of one insertion per record. Nothing is inserted if a key is duplicated.
+     *
+     * @param records the records to insert
+     * @throws DictionaryException if two records have the same key, or a record has the key of one already in the dictionary
+     */
+    public void bulkLoad(Record[] records) throws DictionaryException {
+        List<Record> existing = new ArrayList<>();
+        Iterator<Record> it = iterator();
+        while (it.hasNext()) {
+            existing.add(it.next());
+        }
+        Record[] all = Arrays.copyOf(records, records.length + existing.size());
+        int i = 0;
+        while (i < existing.size()) {
+            all[records.length + i] = existing.get(i);
+            i++;
+        }
+
+        Arrays.parallelSort(all, Comparator.comparing(Record::getKey));
+        i = 1;
+        while (i < all.length) {
+            if (all[i - 1].getKey().compareTo(all[i].getKey()) == 0) {
+                throw new DictionaryException("Duplicate key");
+            }
+            i++;
+        }
+
+        bst.build(all);
+        labels = new RadixTrie();
+        for (Record record : all) {
+            labels.add(record.getKey().getLabel());
+            if (record.getAccessCount() > 0) {
+                labels.access(record.getKey().getLabel(), record.getAccessCount());
+            }
+        }
     }
 
     /**
@@ -46,6 +99,7 @@ public class BSTDictionary implements BSTDictionaryADT {
     @Override
     public void remove(Key k) throws DictionaryException {
         bst.remove(bst.getRoot(), k);
+        labels.remove(k.getLabel());
     }
 
     /**
@@ -113,4 +167,122 @@ public class BSTDictionary implements BSTDictionaryADT {
         }
         
     }
+
+    /**
+     * This function returns an iterator over all the records in increasing order of their keys.
+     *
+     * @return an iterator starting at the smallest record
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new BSTIterator(bst, bst.smallest(bst.getRoot()));
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are larger than or equal to
+     * the specified key, in increasing order.
+     *
+     * @param fromKey the key to start from, which does not need to be in the dictionary
+     * @return an iterator starting at the first record with a key of at least fromKey
+     */
+    @Override
+    public Iterator<Record> iterator(Key fromKey) {
+        return new BSTIterator(bst, bst.ceiling(bst.getRoot(), fromKey));
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are in the given range. It seeks
+     * to the start of the range in O(log n) and stops at its end, so a scan costs O(log n + k) for k records.
+     *
+     * @param fromKey the smallest key of the range (inclusive)
+     * @param toKey the key ending the range (exclusive)
+     * @return an iterator over the records in the range
+     */
+    @Override
+    public Iterator<Record> rangeScan(Key fromKey, Key toKey) {
+        return new BSTIterator(bst, bst.ceiling(bst.getRoot(), fromKey), toKey, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose labels start with the given prefix.
+     * The labels with a prefix form one range of keys, which starts at the prefix with the smallest
+     * possible type, so the scan seeks there and stops at the first label without the prefix.
+     *
+     * @param prefix the prefix of the labels
+     * @return an iterator over the records whose labels start with the prefix
+     */
+    @Override
+    public Iterator<Record> prefixScan(String prefix) {
+        Key start = new Key(prefix, Integer.MIN_VALUE);
+        return new BSTIterator(bst, bst.ceiling(bst.getRoot(), start), null, start.getLabel());
+    }
+
+    /**
+     * This function saves the records to a binary snapshot file, which can later be opened with
+     * SnapshotDictionary and queried without parsing the text file or building the tree again.
+     *
+     * @param fileName the name of the snapshot file, replaced if it exists
+     * @throws IOException if an I/O error occurs
+     */
+    public void save(String fileName) throws IOException {
+        SnapshotDictionary.write(this, fileName);
+    }
+
+    /**
+     * This function counts the distinct labels that start with the given prefix, without visiting them.
+     *
+     * @param prefix the prefix of the labels
+     * @return the number of labels with the prefix
+     */
+    public int countPrefix(String prefix) {
+        return labels.countPrefix(prefix.toLowerCase());
+    }
+
+    /**
+     * This function lists the distinct labels that start with the given prefix, in increasing order.
+     *
+     * @param prefix the prefix of the labels
+     * @return the labels with the prefix
+     */
+    public List<String> labelsWithPrefix(String prefix) {
+        return labels.withPrefix(prefix.toLowerCase());
+    }
+
+    /**
+     * This function finds the longest label in the dictionary that is a prefix of the given word.
+     *
+     * @param word the word to match
+     * @return the longest label the word starts with, or null if there is none
+     */
+    public String longestPrefixMatch(String word) {
+        return labels.longestPrefixOf(word.toLowerCase());
+    }
+
+    /**
+     * This function retrieves the record associated with the specified key on behalf of a user and
+     * counts the look-up, both on the record and on the popularity of its label.
+     *
+     * @param k the key of the record to retrieve
+     * @return the record associated with the key, or null if the key is not found
+     */
+    public Record lookup(Key k) {
+        Record record = get(k);
+        if (record != null) {
+            record.recordAccess();
+            labels.access(k.getLabel());
+        }
+        return record;
+    }
+
+    /**
+     * This function returns the most looked-up labels that start with the given prefix, most popular
+     * first. Labels looked up equally often are in increasing order.
+     *
+     * @param prefix the prefix of the labels
+     * @param k the number of labels wanted; more than 10 makes the trie rank every label with the prefix
+     * @return up to k labels with the prefix
+     */
+    public List<String> mostPopular(String prefix, int k) {
+        return labels.mostPopular(prefix.toLowerCase(), k);
+    }
 }
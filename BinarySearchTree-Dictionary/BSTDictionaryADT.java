@@ -1,3 +1,5 @@
+import java.util.Iterator;
+
 public interface BSTDictionaryADT {
     /* Ordered Dictionary ADT */
 
@@ -30,6 +32,25 @@ public interface BSTDictionaryADT {
     /* Returns the Record with largest key in the ordered dictionary. 
        Returns null if the dictionary is empty.  */
     public Record largest ();
+
+    /* Returns an iterator over all the Records of the ordered dictionary in 
+       increasing order of their keys. The dictionary must not be changed while 
+       the iterator is in use.  */
+    public Iterator<Record> iterator ();
+
+    /* Returns an iterator over the Records of the ordered dictionary with keys 
+       larger than or equal to fromKey, in increasing order. Note that fromKey 
+       DOES NOT need to be in the dictionary.  */
+    public Iterator<Record> iterator (Key fromKey);
+
+    /* Returns an iterator over the Records with keys larger than or equal to 
+       fromKey and smaller than toKey, in increasing order. Neither key needs 
+       to be in the dictionary.  */
+    public Iterator<Record> rangeScan (Key fromKey, Key toKey);
+
+    /* Returns an iterator over the Records whose labels start with the given 
+       prefix, in increasing order of their keys.  */
+    public Iterator<Record> prefixScan (String prefix);
 }
 		
 
@@ -0,0 +1,88 @@
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * BSTIterator.java
+ * Ali Ajwani
+ * 
+ * This class walks the records of a binary search tree in increasing order of their keys.
+ * Each step moves from one node to the next through the child and parent references, so a
+ * walk over the whole tree visits every node a constant number of times. The walk can be
+ * limited to the keys below an end key or to the labels starting with a prefix; it stops at
+ * the first record past the limit. The tree must not be changed while it is being walked.
+ */
+public class BSTIterator implements Iterator<Record> {
+    private BinarySearchTree bst; // The tree being walked
+    private BSTNode next; // The node whose record is returned next, or null at the end
+    private Key end; // The walk stops before the first key larger than or equal to this one, null for no limit
+    private String prefix; // The walk stops at the first label without this prefix, null for no limit
+
+    /**
+     * This function initializes an iterator that starts at the given node.
+     *
+     * @param bst the tree to walk
+     * @param first the first node to return, or null for an empty walk
+     */
+    public BSTIterator(BinarySearchTree bst, BSTNode first) {
+        this(bst, first, null, null);
+    }
+
+    /**
+     * This function initializes an iterator that starts at the given node and stops at a limit.
+     *
+     * @param bst the tree to walk
+     * @param first the first node to return, or null for an empty walk
+     * @param end the key at which the walk stops (exclusive), or null
+     * @param prefix the prefix every returned label must start with, or null
+     */
+    public BSTIterator(BinarySearchTree bst, BSTNode first, Key end, String prefix) {
+        this.bst = bst;
+        this.end = end;
+        this.prefix = prefix;
+        this.next = limit(first);
+    }
+
+    /**
+     * This function checks if there are more records to return.
+     *
+     * @return true if there are more records
+     * @return false otherwise
+     */
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * This function returns the next record and moves to the one after it.
+     *
+     * @return the next record
+     * @throws NoSuchElementException if there are no more records
+     */
+    @Override
+    public Record next() {
+        if (next == null) {
+            throw new NoSuchElementException();
+        }
+        Record record = next.getRecord();
+        next = limit(bst.next(next));
+        return record;
+    }
+
+    /**
+     * This function checks a node against the limits of the walk.
+     *
+     * @param u the node to check, possibly null
+     * @return the node if it is within the limits, null otherwise
+     */
+    private BSTNode limit(BSTNode u) {
+        if (u == null) {
+            return null;
+        }
+        Key key = u.getRecord().getKey();
+        if ((end != null && key.compareTo(end) >= 0) || (prefix != null && !key.getLabel().startsWith(prefix))) {
+            return null; // Past the end of the range
+        }
+        return u;
+    }
+}
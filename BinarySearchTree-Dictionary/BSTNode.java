@@ -3,13 +3,15 @@
  * Ali Ajwani
  * 
  * This class represents a node in a binary search tree with each node containing
- * a record and reference to its left child, right child, and parent.
+ * a record and reference to its left child, right child, and parent. Each node also
+ * stores the height of its subtree, which the tree uses to stay balanced.
  */
 
 public class BSTNode {
 
     private Record item;
     private BSTNode left, right, parent;
+    private int height = 1; // The number of nodes on the longest path down from this node
 
     /**
      * This function initializes a new BSTNode with the specified record.
@@ -92,6 +94,24 @@ public class BSTNode {
         this.parent = u;
     }
 
+    /**
+     * This function returns the height of the subtree rooted at this node.
+     *
+     * @return the height of this node, 1 for a leaf
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * This function sets the height of the subtree rooted at this node.
+     *
+     * @param h the height to set
+     */
+    public void setHeight(int h) {
+        this.height = h;
+    }
+
     /**
      * This function checks if the node is a leaf.
      *
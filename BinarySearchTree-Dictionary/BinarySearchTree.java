@@ -3,6 +3,9 @@
  * Ali Ajwani 
  * 
  * This class represents a binary search tree that stores records with unique keys.
+ * The tree is kept balanced as an AVL tree: after every insertion and removal the
+ * heights of the two subtrees of any node differ by at most one, so the tree has
+ * O(log n) levels even when the records are inserted in sorted order.
  */
 public class BinarySearchTree {
     private BSTNode root; // represents a binary search tree root
@@ -14,6 +17,40 @@ public class BinarySearchTree {
         root = null; // Initialize root as null to signify an empty tree
     }
 
+    /**
+     * This function replaces the contents of the tree with the given records, building a perfectly
+     * balanced tree in O(n) time. The records must be sorted by key and have distinct keys.
+     *
+     * @param sorted the records in increasing order of their keys
+     */
+    public void build(Record[] sorted) {
+        root = build(sorted, 0, sorted.length - 1, null);
+    }
+
+    /**
+     * This function builds a balanced subtree from a range of sorted records. The middle record
+     * becomes the root of the subtree and the two halves its subtrees, so the recursion is only
+     * O(log n) deep.
+     *
+     * @param sorted the records in increasing order of their keys
+     * @param low the first record of the range
+     * @param high the last record of the range
+     * @param par the parent of the subtree
+     * @return the root of the subtree, or null if the range is empty
+     */
+    private static BSTNode build(Record[] sorted, int low, int high, BSTNode par) {
+        if (low > high) {
+            return null;
+        }
+        int mid = (low + high) >>> 1;
+        BSTNode node = new BSTNode(sorted[mid]);
+        node.setParent(par);
+        node.setLeftChild(build(sorted, low, mid - 1, node));
+        node.setRightChild(build(sorted, mid + 1, high, node));
+        updateHeight(node);
+        return node;
+    }
+
     /**
      * This function returns the root node of the binary search tree.
      *
@@ -31,21 +68,19 @@ public class BinarySearchTree {
      * @return the node with the specified key, or null if not found
      */
     public BSTNode get(BSTNode r, Key k) {
-        if (r == null) {
-            return null; // Return null if node does not exist
-        }
-        
-        int comparison = k.compareTo(r.getRecord().getKey()); // Compare the keys
-        
-        if (comparison < 0) {
-            return get(r.getLeftChild(), k); // Search left if key is smaller
-        }
-        
-        if (comparison > 0) {
-            return get(r.getRightChild(), k); // Search right if key is larger
+        BSTNode node = r;
+        while (node != null) {
+            int comparison = k.compareTo(node.getRecord().getKey()); // Compare the keys
+
+            if (comparison < 0) {
+                node = node.getLeftChild(); // Search left if key is smaller
+            } else if (comparison > 0) {
+                node = node.getRightChild(); // Search right if key is larger
+            } else {
+                return node; // Node found with matching key
+            }
         }
-        
-        return r; // Node found with matching key
+        return null; // Return null if node does not exist
     }
 
     /**
@@ -60,32 +95,37 @@ public class BinarySearchTree {
             root = new BSTNode(d); // Set root if tree is empty
             return;
         }
-        
-        int comparison = d.getKey().compareTo(r.getRecord().getKey());
-        
-        if (comparison < 0) {
-            if (r.getLeftChild() != null) {
-                insert(r.getLeftChild(), d); // Recurse left if child exists
+
+        BSTNode node = r;
+        while (true) {
+            int comparison = d.getKey().compareTo(node.getRecord().getKey());
+
+            if (comparison < 0) {
+                if (node.getLeftChild() != null) {
+                    node = node.getLeftChild(); // Go left if child exists
+                    continue;
+                }
+                BSTNode newNode = new BSTNode(d); // Create new node on the left
+                node.setLeftChild(newNode);
+                newNode.setParent(node);
+                rebalance(node);
                 return;
             }
-            BSTNode newNode = new BSTNode(d); // Create new node on the left
-            r.setLeftChild(newNode);
-            newNode.setParent(r);
-            return;
-        }
-        
-        if (comparison > 0) {
-            if (r.getRightChild() != null) {
-                insert(r.getRightChild(), d); // Recurse right if child exists
+
+            if (comparison > 0) {
+                if (node.getRightChild() != null) {
+                    node = node.getRightChild(); // Go right if child exists
+                    continue;
+                }
+                BSTNode newNode = new BSTNode(d); // Create new node on the right
+                node.setRightChild(newNode);
+                newNode.setParent(node);
+                rebalance(node);
                 return;
             }
-            BSTNode newNode = new BSTNode(d); // Create new node on the right
-            r.setRightChild(newNode);
-            newNode.setParent(r);
-            return;
+
+            throw new DictionaryException("Duplicate key"); // Key already exists
         }
-        
-        throw new DictionaryException("Duplicate key"); // Key already exists
     }
 
     /**
@@ -111,6 +151,7 @@ public class BinarySearchTree {
                 } else {
                     par.setRightChild(null); // Remove as right child
                 }
+                rebalance(par);
             }
             return;
         }
@@ -118,7 +159,19 @@ public class BinarySearchTree {
         if (node.getLeftChild() != null && node.getRightChild() != null) {
             BSTNode successor = smallest(node.getRightChild()); // Find smallest node in right subtree
             node.setRecord(successor.getRecord()); // Copy successor's data
-            remove(successor, successor.getRecord().getKey()); // Remove successor
+
+            // The successor has no left child, so it is unlinked by moving its right child up
+            BSTNode par = successor.getParent();
+            BSTNode child = successor.getRightChild();
+            if (par.getLeftChild() == successor) {
+                par.setLeftChild(child);
+            } else {
+                par.setRightChild(child);
+            }
+            if (child != null) {
+                child.setParent(par);
+            }
+            rebalance(par);
         } else {
             BSTNode child;
             if (node.getLeftChild() != null) {
@@ -138,52 +191,95 @@ public class BinarySearchTree {
                     par.setRightChild(child); // Set parent's right child
                 }
                 child.setParent(par); // Set child's parent
+                rebalance(par);
             }
         }
     }
 
     /**
      * This function finds the successor of the node with the specified key in the subtree rooted at the given node.
+     * The key does not need to be in the tree.
      *
      * @param r the root of the subtree to search for the successor
      * @param k the key of the node whose successor is to be found
      * @return the successor node, or null if there is no successor
      */
     public BSTNode successor(BSTNode r, Key k) {
-        BSTNode node = get(r, k);
-        if (node == null) return null;
-
-        if (node.getRightChild() != null) {
-            return smallest(node.getRightChild()); // Find smallest in right subtree
-        } else {
-            BSTNode par = node.getParent();
-            while (par != null && node == par.getRightChild()) {
-                node = par; // Move up the tree to find successor
-                par = par.getParent();
+        BSTNode successor = null;
+        BSTNode node = r;
+        while (node != null) {
+            if (k.compareTo(node.getRecord().getKey()) < 0) {
+                successor = node; // Larger than k, so a candidate; a closer one can only be on the left
+                node = node.getLeftChild();
+            } else {
+                node = node.getRightChild();
             }
-            return par; // Return successor if found, otherwise null
         }
+        return successor; // The smallest node larger than k, or null if there is none
     }
 
     /**
      * This function finds the predecessor of the node with the specified key in the subtree rooted at the given node.
+     * The key does not need to be in the tree.
      *
      * @param r the root of the subtree to search for the predecessor
      * @param k the key of the node whose predecessor is to be found
      * @return the predecessor node, or null if there is no predecessor
      */
     public BSTNode predecessor(BSTNode r, Key k) {
-        BSTNode node = get(r, k);
-        if (node == null) return null;
-    
-        if (node.getLeftChild() != null) {
-            return largest(node.getLeftChild()); // Find largest in left subtree
+        BSTNode predecessor = null;
+        BSTNode node = r;
+        while (node != null) {
+            if (k.compareTo(node.getRecord().getKey()) > 0) {
+                predecessor = node; // Smaller than k, so a candidate; a closer one can only be on the right
+                node = node.getRightChild();
+            } else {
+                node = node.getLeftChild();
+            }
         }
+        return predecessor; // The largest node smaller than k, or null if there is none
+    }
 
-        // Search in the ancestors if no left child
+    /**
+     * This function finds the node with the smallest key that is greater than or equal to the
+     * specified key in the subtree rooted at the given node. The key does not need to be in the tree.
+     *
+     * @param r the root of the subtree to search
+     * @param k the key to search for
+     * @return the node with the specified key or, if there is none, its successor; null if neither exists
+     */
+    public BSTNode ceiling(BSTNode r, Key k) {
+        BSTNode ceiling = null;
+        BSTNode node = r;
+        while (node != null) {
+            int comparison = k.compareTo(node.getRecord().getKey());
+            if (comparison == 0) {
+                return node; // Node found with matching key
+            }
+            if (comparison < 0) {
+                ceiling = node; // Larger than k, so a candidate; a closer one can only be on the left
+                node = node.getLeftChild();
+            } else {
+                node = node.getRightChild();
+            }
+        }
+        return ceiling;
+    }
+
+    /**
+     * This function finds the node that follows the given node in key order, without comparing keys.
+     *
+     * @param u the node whose next node is to be found
+     * @return the next node, or null if u holds the largest key
+     */
+    public BSTNode next(BSTNode u) {
+        if (u.getRightChild() != null) {
+            return smallest(u.getRightChild()); // Smallest in right subtree
+        }
+        BSTNode node = u;
         BSTNode par = node.getParent();
-        while (par != null && node == par.getLeftChild()) {
-            node = par;
+        while (par != null && node == par.getRightChild()) {
+            node = par; // Move up until coming from a left child
             par = par.getParent();
         }
         return par;
@@ -196,10 +292,11 @@ public class BinarySearchTree {
      * @return the smallest node in the subtree, or null if the subtree is empty
      */
     public BSTNode smallest(BSTNode r) {
-        if (r == null || r.getLeftChild() == null) {
-            return r; // Return if node is smallest or subtree is empty
+        BSTNode node = r;
+        while (node != null && node.getLeftChild() != null) {
+            node = node.getLeftChild(); // Go left to find smallest
         }
-        return smallest(r.getLeftChild()); // Recurse left to find smallest
+        return node; // Smallest node, or null if the subtree is empty
     }
 
     /**
@@ -209,9 +306,120 @@ public class BinarySearchTree {
      * @return the largest node in the subtree, or null if the subtree is empty
      */
     public BSTNode largest(BSTNode r) {
-        if (r == null || r.getRightChild() == null) {
-            return r; // Return if node is largest or subtree is empty
+        BSTNode node = r;
+        while (node != null && node.getRightChild() != null) {
+            node = node.getRightChild(); // Go right to find largest
+        }
+        return node; // Largest node, or null if the subtree is empty
+    }
+
+    /**
+     * This function restores the balance of the tree after a node below the given node was added or
+     * removed. It walks up to the root, updating the height of every node on the way and rotating
+     * any node whose subtrees differ in height by more than one.
+     *
+     * @param r the lowest node whose subtree changed
+     */
+    private void rebalance(BSTNode r) {
+        BSTNode node = r;
+        while (node != null) {
+            int balance = height(node.getLeftChild()) - height(node.getRightChild());
+            if (balance > 1) {
+                BSTNode left = node.getLeftChild();
+                if (height(left.getLeftChild()) < height(left.getRightChild())) {
+                    rotateLeft(left); // Left-right case: turn it into a left-left case first
+                }
+                node = rotateRight(node);
+            } else if (balance < -1) {
+                BSTNode right = node.getRightChild();
+                if (height(right.getRightChild()) < height(right.getLeftChild())) {
+                    rotateRight(right); // Right-left case: turn it into a right-right case first
+                }
+                node = rotateLeft(node);
+            } else {
+                updateHeight(node);
+            }
+            node = node.getParent();
+        }
+    }
+
+    /**
+     * This function rotates the subtree rooted at the given node to the left, so that its right
+     * child takes its place.
+     *
+     * @param r the root of the subtree to rotate
+     * @return the new root of the subtree
+     */
+    private BSTNode rotateLeft(BSTNode r) {
+        BSTNode child = r.getRightChild();
+        r.setRightChild(child.getLeftChild());
+        if (child.getLeftChild() != null) {
+            child.getLeftChild().setParent(r);
+        }
+        replaceChild(r, child);
+        child.setLeftChild(r);
+        r.setParent(child);
+        updateHeight(r);
+        updateHeight(child);
+        return child;
+    }
+
+    /**
+     * This function rotates the subtree rooted at the given node to the right, so that its left
+     * child takes its place.
+     *
+     * @param r the root of the subtree to rotate
+     * @return the new root of the subtree
+     */
+    private BSTNode rotateRight(BSTNode r) {
+        BSTNode child = r.getLeftChild();
+        r.setLeftChild(child.getRightChild());
+        if (child.getRightChild() != null) {
+            child.getRightChild().setParent(r);
+        }
+        replaceChild(r, child);
+        child.setRightChild(r);
+        r.setParent(child);
+        updateHeight(r);
+        updateHeight(child);
+        return child;
+    }
+
+    /**
+     * This function puts a node in the place of another one below that node's parent, or as the
+     * root of the tree if the other node was the root.
+     *
+     * @param old the node being replaced
+     * @param u   the node taking its place
+     */
+    private void replaceChild(BSTNode old, BSTNode u) {
+        BSTNode par = old.getParent();
+        u.setParent(par);
+        if (par == null) {
+            root = u;
+        } else if (par.getLeftChild() == old) {
+            par.setLeftChild(u);
+        } else {
+            par.setRightChild(u);
         }
-        return largest(r.getRightChild()); // Recurse right to find largest
+    }
+
+    /**
+     * This function recomputes the height of a node from the heights of its children.
+     *
+     * @param r the node to update
+     */
+    private static void updateHeight(BSTNode r) {
+        r.setHeight(1 + Math.max(height(r.getLeftChild()), height(r.getRightChild())));
+    }
+
+    /**
+     * This function returns the height of a subtree.
+     *
+     * @param r the root of the subtree
+     * @return the height of the subtree, 0 if it is empty
+     */
+    private static int height(BSTNode r) {
+        return r == null ? 0 : r.getHeight();
     }
 }
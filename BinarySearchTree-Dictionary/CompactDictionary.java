@@ -0,0 +1,686 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * CompactDictionary.java
+ * Ali Ajwani
+ *
+ * This class represents a dictionary kept in an AVL tree whose nodes are slots of primitive arrays
+ * instead of objects. A node is an index: its children, parent, height and type are entries of
+ * int and byte arrays, and its label and data are stored one after the other in a shared array of
+ * characters, the arena. A record in a BSTDictionary costs a BSTNode, a Record, a Key and two
+ * Strings, with their headers and references; here it costs about 26 bytes plus its characters,
+ * and the garbage collector sees a handful of large arrays instead of millions of small objects.
+ * Records and keys are only built when they are returned.
+ *
+ * The slots of removed nodes are chained through the left array into a free list and reused by
+ * later insertions. The characters of removed nodes stay in the arena until they make up half of
+ * it, and the arena is then compacted.
+ *
+ * The arena is a single char array, so the labels and data of all the records together cannot
+ * exceed MAX_ARENA characters (about 2G); put throws a DictionaryException for a record that would
+ * not fit.
+ */
+public class CompactDictionary implements BSTDictionaryADT {
+    private static final int NIL = -1; // The index that stands for no node
+    private static final int INITIAL_CAPACITY = 16; // The number of slots of a new dictionary
+    private static final int MIN_GARBAGE = 1 << 16; // The number of dead characters below which the arena is never compacted
+    public static final int MAX_ARENA = Integer.MAX_VALUE - 8; // The most characters the arena can hold, the largest array JVMs reliably allocate
+
+    private int[] left; // The left child of every slot, or the next free slot for a free one
+    private int[] right; // The right child of every slot
+    private int[] parent; // The parent of every slot
+    private byte[] height; // The height of the subtree at every slot
+    private byte[] type; // The type of the key of every slot
+    private int[] start; // The offset of the label of every slot in the arena, followed by its data
+    private int[] labelLength; // The number of characters of the label of every slot
+    private int[] dataLength; // The number of characters of the data of every slot
+
+    private int root; // The slot of the root, or NIL for an empty tree
+    private int slots; // The number of slots ever used; slots from here on are untouched
+    private int free; // The first slot of the free list, or NIL
+    private int size; // The number of records
+
+    private char[] arena; // The labels and data of the records
+    private int used; // The number of characters used in the arena
+    private int garbage; // The number of characters of removed records still in the arena
+
+    /**
+     * This function initializes an empty dictionary.
+     */
+    public CompactDictionary() {
+        left = new int[INITIAL_CAPACITY];
+        right = new int[INITIAL_CAPACITY];
+        parent = new int[INITIAL_CAPACITY];
+        height = new byte[INITIAL_CAPACITY];
+        type = new byte[INITIAL_CAPACITY];
+        start = new int[INITIAL_CAPACITY];
+        labelLength = new int[INITIAL_CAPACITY];
+        dataLength = new int[INITIAL_CAPACITY];
+        arena = new char[INITIAL_CAPACITY * 16];
+        root = NIL;
+        free = NIL;
+    }
+
+    /**
+     * This function returns the number of records in the dictionary.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * This function compares the key of a slot with a key, in the order of Key.
+     *
+     * @param u the slot
+     * @param k the key to compare with
+     * @return a negative number, 0 or a positive number as the key of u is smaller than, equal to or larger than k
+     */
+    private int compare(int u, Key k) {
+        String label = k.getLabel();
+        int length = labelLength[u];
+        int common = Math.min(length, label.length());
+        int offset = start[u];
+        int i = 0;
+        while (i < common) {
+            char c = arena[offset + i];
+            char d = label.charAt(i);
+            if (c != d) {
+                return c - d;
+            }
+            i++;
+        }
+        if (length != label.length()) {
+            return length - label.length();
+        }
+        return Integer.compare(type[u], k.getType());
+    }
+
+    /**
+     * This function builds the record stored in a slot.
+     *
+     * @param u the slot, or NIL
+     * @return the record of the slot, or null for NIL
+     */
+    private Record record(int u) {
+        if (u == NIL) {
+            return null;
+        }
+        String label = new String(arena, start[u], labelLength[u]);
+        String data = new String(arena, start[u] + labelLength[u], dataLength[u]);
+        return new Record(new Key(label, type[u]), data);
+    }
+
+    /**
+     * This function checks whether the label of a slot starts with a prefix.
+     *
+     * @param u the slot
+     * @param prefix the prefix
+     * @return true if the label starts with the prefix
+     * @return false otherwise
+     */
+    private boolean startsWith(int u, String prefix) {
+        if (labelLength[u] < prefix.length()) {
+            return false;
+        }
+        int i = 0;
+        while (i < prefix.length()) {
+            if (arena[start[u] + i] != prefix.charAt(i)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * This function finds the slot with the specified key.
+     *
+     * @param k the key to search for
+     * @return the slot with the key, or NIL
+     */
+    private int find(Key k) {
+        int u = root;
+        while (u != NIL) {
+            int c = compare(u, k);
+            if (c == 0) {
+                return u;
+            }
+            u = c > 0 ? left[u] : right[u];
+        }
+        return NIL;
+    }
+
+    /**
+     * This function finds the slot with the smallest key larger than (or equal to) a key.
+     *
+     * @param k the key to search for
+     * @param inclusive whether a slot with key k is a match
+     * @return the first slot with a key at least (or above) k, or NIL
+     */
+    private int ceiling(Key k, boolean inclusive) {
+        int u = root;
+        int best = NIL;
+        while (u != NIL) {
+            int c = compare(u, k);
+            if (c > 0 || (c == 0 && inclusive)) {
+                best = u;
+                u = left[u];
+            } else {
+                u = right[u];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This function finds the slot with the largest key smaller than a key.
+     *
+     * @param k the key to search for
+     * @return the last slot with a key below k, or NIL
+     */
+    private int lower(Key k) {
+        int u = root;
+        int best = NIL;
+        while (u != NIL) {
+            if (compare(u, k) < 0) {
+                best = u;
+                u = right[u];
+            } else {
+                u = left[u];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This function returns the slot with the smallest key in a subtree.
+     *
+     * @param u the root of the subtree, or NIL
+     * @return the smallest slot, or NIL for an empty subtree
+     */
+    private int smallest(int u) {
+        if (u == NIL) {
+            return NIL;
+        }
+        while (left[u] != NIL) {
+            u = left[u];
+        }
+        return u;
+    }
+
+    /**
+     * This function returns the slot that follows a slot in increasing order of keys.
+     *
+     * @param u the slot
+     * @return the next slot, or NIL if u is the last
+     */
+    private int next(int u) {
+        if (right[u] != NIL) {
+            return smallest(right[u]);
+        }
+        int p = parent[u];
+        while (p != NIL && u == right[p]) {
+            u = p;
+            p = parent[p];
+        }
+        return p;
+    }
+
+    /**
+     * This function retrieves the record associated with the specified key.
+     *
+     * @param k the key of the record to retrieve
+     * @return the record associated with the key, or null if the key is not found
+     */
+    @Override
+    public Record get(Key k) {
+        return record(find(k));
+    }
+
+    /**
+     * This function inserts a new record into the dictionary.
+     *
+     * @param d the record to insert
+     * @throws DictionaryException if the record already exists in the dictionary, or its label and
+     *                             data do not fit in the arena
+     * @throws IllegalArgumentException if the type of the record does not fit in a byte
+     */
+    @Override
+    public void put(Record d) throws DictionaryException {
+        Key k = d.getKey();
+        if (k.getType() < Byte.MIN_VALUE || k.getType() > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("The type " + k.getType() + " does not fit in a compact dictionary");
+        }
+
+        // Find the parent of the new node
+        int p = NIL;
+        int u = root;
+        int c = 0;
+        while (u != NIL) {
+            c = compare(u, k);
+            if (c == 0) {
+                throw new DictionaryException("Duplicate key");
+            }
+            p = u;
+            u = c > 0 ? left[u] : right[u];
+        }
+
+        reserve((long) k.getLabel().length() + d.getDataItem().length());
+        int v = allocate(k, d.getDataItem());
+        parent[v] = p;
+        if (p == NIL) {
+            root = v;
+        } else if (c > 0) {
+            left[p] = v;
+        } else {
+            right[p] = v;
+        }
+        size++;
+        rebalance(p);
+    }
+
+    /**
+     * This function makes room at the end of the arena for the characters of a new record,
+     * compacting the arena first if only the characters of removed records are in the way, and
+     * otherwise growing it.
+     *
+     * @param length the number of characters of the label and data of the record
+     * @throws DictionaryException if the characters of the records would exceed MAX_ARENA
+     */
+    private void reserve(long length) throws DictionaryException {
+        if (used - garbage + length > MAX_ARENA) {
+            throw new DictionaryException("The dictionary cannot hold more than " + MAX_ARENA + " characters");
+        }
+        if (used + length > MAX_ARENA) {
+            compact();
+        }
+        if (used + length > arena.length) {
+            arena = Arrays.copyOf(arena, capacityFor(used + length, arena.length));
+        }
+    }
+
+    /**
+     * This function chooses the new length of a growing array: double its length, or more if that
+     * is not enough, but never more than MAX_ARENA. The arithmetic is done on longs so that
+     * doubling a large array cannot overflow.
+     *
+     * @param needed the length the array needs, at most MAX_ARENA
+     * @param current the current length of the array
+     * @return the new length
+     */
+    private static int capacityFor(long needed, long current) {
+        return (int) Math.min(MAX_ARENA, Math.max(needed, 2 * current));
+    }
+
+    /**
+     * This function takes a slot from the free list, or a new one, and stores a key and its data in it.
+     *
+     * @param k the key
+     * @param data the data
+     * @return the slot
+     */
+    private int allocate(Key k, String data) {
+        int v;
+        if (free != NIL) {
+            v = free;
+            free = left[v];
+        } else {
+            if (slots == left.length) {
+                int capacity = capacityFor(slots + 1L, slots);
+                left = Arrays.copyOf(left, capacity);
+                right = Arrays.copyOf(right, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                height = Arrays.copyOf(height, capacity);
+                type = Arrays.copyOf(type, capacity);
+                start = Arrays.copyOf(start, capacity);
+                labelLength = Arrays.copyOf(labelLength, capacity);
+                dataLength = Arrays.copyOf(dataLength, capacity);
+            }
+            v = slots++;
+        }
+
+        String label = k.getLabel();
+        int length = label.length() + data.length(); // Fits, since reserve made room for it
+        label.getChars(0, label.length(), arena, used);
+        data.getChars(0, data.length(), arena, used + label.length());
+
+        left[v] = NIL;
+        right[v] = NIL;
+        height[v] = 1;
+        type[v] = (byte) k.getType();
+        start[v] = used;
+        labelLength[v] = label.length();
+        dataLength[v] = data.length();
+        used += length;
+        return v;
+    }
+
+    /**
+     * This function removes the record with the specified key from the dictionary.
+     *
+     * @param k the key of the record to remove
+     * @throws DictionaryException if the key is not found
+     */
+    @Override
+    public void remove(Key k) throws DictionaryException {
+        int u = find(k);
+        if (u == NIL) {
+            throw new DictionaryException("Key not found");
+        }
+        garbage += labelLength[u] + dataLength[u];
+
+        if (left[u] != NIL && right[u] != NIL) {
+            // Move the successor's record into u, then unlink the successor, which has no left child
+            int s = smallest(right[u]);
+            type[u] = type[s];
+            start[u] = start[s];
+            labelLength[u] = labelLength[s];
+            dataLength[u] = dataLength[s];
+            u = s;
+        }
+
+        int child = left[u] != NIL ? left[u] : right[u];
+        int p = parent[u];
+        if (child != NIL) {
+            parent[child] = p;
+        }
+        replaceChild(p, u, child);
+
+        left[u] = free; // Chain the slot into the free list
+        free = u;
+        size--;
+        rebalance(p);
+
+        if (garbage > MIN_GARBAGE && garbage > used / 2) {
+            compact();
+        }
+    }
+
+    /**
+     * This function copies the characters of the records still in the dictionary into a new arena.
+     */
+    private void compact() {
+        char[] fresh = new char[Math.max(INITIAL_CAPACITY * 16, capacityFor(used - garbage, used - garbage))];
+        int filled = 0;
+        int u = smallest(root);
+        while (u != NIL) {
+            int length = labelLength[u] + dataLength[u];
+            System.arraycopy(arena, start[u], fresh, filled, length);
+            start[u] = filled;
+            filled += length;
+            u = next(u);
+        }
+        arena = fresh;
+        used = filled;
+        garbage = 0;
+    }
+
+    /**
+     * This function finds the record with the smallest key larger than the specified key.
+     *
+     * @param k the key to find the successor for, which does not need to be in the dictionary
+     * @return the successor record, or null if there is none
+     */
+    @Override
+    public Record successor(Key k) {
+        return record(ceiling(k, false));
+    }
+
+    /**
+     * This function finds the record with the largest key smaller than the specified key.
+     *
+     * @param k the key to find the predecessor for, which does not need to be in the dictionary
+     * @return the predecessor record, or null if there is none
+     */
+    @Override
+    public Record predecessor(Key k) {
+        return record(lower(k));
+    }
+
+    /**
+     * This function returns the record with the smallest key.
+     *
+     * @return the smallest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record smallest() {
+        return record(smallest(root));
+    }
+
+    /**
+     * This function returns the record with the largest key.
+     *
+     * @return the largest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record largest() {
+        int u = root;
+        if (u == NIL) {
+            return null;
+        }
+        while (right[u] != NIL) {
+            u = right[u];
+        }
+        return record(u);
+    }
+
+    /**
+     * This function returns an iterator over all the records in increasing order of their keys.
+     *
+     * @return an iterator starting at the smallest record
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new SlotIterator(smallest(root), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are larger than or equal to
+     * the specified key, in increasing order.
+     *
+     * @param fromKey the key to start from, which does not need to be in the dictionary
+     * @return an iterator starting at the first record with a key of at least fromKey
+     */
+    @Override
+    public Iterator<Record> iterator(Key fromKey) {
+        return new SlotIterator(ceiling(fromKey, true), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are in the given range.
+     *
+     * @param fromKey the smallest key of the range (inclusive)
+     * @param toKey the key ending the range (exclusive)
+     * @return an iterator over the records in the range
+     */
+    @Override
+    public Iterator<Record> rangeScan(Key fromKey, Key toKey) {
+        return new SlotIterator(ceiling(fromKey, true), toKey, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose labels start with the given prefix.
+     *
+     * @param prefix the prefix of the labels
+     * @return an iterator over the records whose labels start with the prefix
+     */
+    @Override
+    public Iterator<Record> prefixScan(String prefix) {
+        Key start = new Key(prefix, Integer.MIN_VALUE);
+        return new SlotIterator(ceiling(start, true), null, start.getLabel());
+    }
+
+    /**
+     * This function returns the height of a subtree.
+     *
+     * @param u the root of the subtree, or NIL
+     * @return the height, 0 for an empty subtree
+     */
+    private int height(int u) {
+        return u == NIL ? 0 : height[u];
+    }
+
+    /**
+     * This function recomputes the height of a slot from its children.
+     *
+     * @param u the slot
+     */
+    private void updateHeight(int u) {
+        height[u] = (byte) (1 + Math.max(height(left[u]), height(right[u])));
+    }
+
+    /**
+     * This function replaces a child of a slot, or the root.
+     *
+     * @param p the parent, or NIL when the child is the root
+     * @param old the child to replace
+     * @param replacement the new child, or NIL
+     */
+    private void replaceChild(int p, int old, int replacement) {
+        if (p == NIL) {
+            root = replacement;
+        } else if (left[p] == old) {
+            left[p] = replacement;
+        } else {
+            right[p] = replacement;
+        }
+    }
+
+    /**
+     * This function rotates a subtree to the left.
+     *
+     * @param u the root of the subtree, which has a right child
+     * @return the new root of the subtree
+     */
+    private int rotateLeft(int u) {
+        int r = right[u];
+        int p = parent[u];
+        right[u] = left[r];
+        if (left[r] != NIL) {
+            parent[left[r]] = u;
+        }
+        left[r] = u;
+        parent[u] = r;
+        parent[r] = p;
+        replaceChild(p, u, r);
+        updateHeight(u);
+        updateHeight(r);
+        return r;
+    }
+
+    /**
+     * This function rotates a subtree to the right.
+     *
+     * @param u the root of the subtree, which has a left child
+     * @return the new root of the subtree
+     */
+    private int rotateRight(int u) {
+        int l = left[u];
+        int p = parent[u];
+        left[u] = right[l];
+        if (right[l] != NIL) {
+            parent[right[l]] = u;
+        }
+        right[l] = u;
+        parent[u] = l;
+        parent[l] = p;
+        replaceChild(p, u, l);
+        updateHeight(u);
+        updateHeight(l);
+        return l;
+    }
+
+    /**
+     * This function walks from a slot up to the root, restoring the AVL balance of every subtree on the way.
+     *
+     * @param u the lowest slot whose subtree may have changed, or NIL
+     */
+    private void rebalance(int u) {
+        while (u != NIL) {
+            updateHeight(u);
+            int balance = height(left[u]) - height(right[u]);
+            if (balance > 1) {
+                if (height(left[left[u]]) < height(right[left[u]])) {
+                    rotateLeft(left[u]);
+                }
+                u = rotateRight(u);
+            } else if (balance < -1) {
+                if (height(right[right[u]]) < height(left[right[u]])) {
+                    rotateRight(right[u]);
+                }
+                u = rotateLeft(u);
+            }
+            u = parent[u];
+        }
+    }
+
+    /**
+     * This class walks the slots in increasing order of their keys, optionally stopping at an end
+     * key or at the first label without a prefix. The dictionary must not be changed during the walk.
+     */
+    private class SlotIterator implements Iterator<Record> {
+        private int next; // The slot returned next, or NIL at the end
+        private Key end; // The walk stops before the first key larger than or equal to this one, null for no limit
+        private String prefix; // The walk stops at the first label without this prefix, null for no limit
+
+        /**
+         * This function initializes an iterator that starts at a slot.
+         *
+         * @param first the first slot to return, or NIL
+         * @param end the key at which the walk stops (exclusive), or null
+         * @param prefix the prefix every returned label must start with, or null
+         */
+        private SlotIterator(int first, Key end, String prefix) {
+            this.end = end;
+            this.prefix = prefix;
+            this.next = limit(first);
+        }
+
+        /**
+         * This function checks a slot against the limits of the walk.
+         *
+         * @param u the slot, or NIL
+         * @return u if it is within the limits, NIL otherwise
+         */
+        private int limit(int u) {
+            if (u == NIL) {
+                return NIL;
+            }
+            if ((end != null && compare(u, end) >= 0) || (prefix != null && !startsWith(u, prefix))) {
+                return NIL; // Past the end of the range
+            }
+            return u;
+        }
+
+        /**
+         * This function checks if there are more records to return.
+         *
+         * @return true if there are more records
+         * @return false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return next != NIL;
+        }
+
+        /**
+         * This function returns the next record and moves to the one after it.
+         *
+         * @return the next record
+         * @throws NoSuchElementException if there are no more records
+         */
+        @Override
+        public Record next() {
+            if (next == NIL) {
+                throw new NoSuchElementException();
+            }
+            Record record = record(next);
+            next = limit(CompactDictionary.this.next(next));
+            return record;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * DictionaryLoader.java
+ * Ali Ajwani
+ *
+ * This class reads the records of a dictionary input file, where every record takes two lines:
+ * the label, then the data. The file is memory-mapped and split into chunks that each start at
+ * the label of a record, and the chunks are decoded into records in parallel. Finding the chunk
+ * boundaries only needs the newlines of the file to be counted, which is also done in parallel,
+ * so no thread has to decode the whole file. Lines are read as UTF-8 and may end with "\n" or
+ * "\r\n"; a label without a data line at the end of the file is ignored.
+ */
+public class DictionaryLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 16 << 20; // The size in bytes of the pieces the file is split into
+    private static final int WINDOW_SIZE = 1 << 16; // The size of the window mapped to look for the end of a line
+
+    private int chunkSize; // The size in bytes of the pieces the file is split into
+
+    /**
+     * This function initializes a loader that splits files into chunks of the default size.
+     */
+    public DictionaryLoader() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * This function initializes a loader that splits files into chunks of the given size.
+     *
+     * @param chunkSize the size in bytes of the chunks, at least 1
+     */
+    public DictionaryLoader(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * This function reads all the records of a file, in the order in which they appear in it.
+     *
+     * @param fileName the name of the input file
+     * @return the records of the file
+     * @throws IOException if an I/O error occurs
+     */
+    public Record[] load(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int pieces = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+
+            try {
+                // Count the newlines of every piece of the file
+                long[] newlines = IntStream.range(0, pieces).parallel()
+                        .mapToLong(i -> countNewlines(channel, (long) i * chunkSize,
+                                Math.min(size, (long) (i + 1) * chunkSize)))
+                        .toArray();
+
+                // Move every piece boundary forward to the start of the next label
+                long[] starts = new long[pieces + 1];
+                long before = 0; // The number of newlines before the start of the current piece
+                int i = 1;
+                while (i < pieces) {
+                    before += newlines[i - 1];
+                    starts[i] = boundary(channel, (long) i * chunkSize, before, size);
+                    i++;
+                }
+                starts[pieces] = size;
+
+                // Decode the chunks between the boundaries
+                Record[][] parts = IntStream.range(0, pieces).parallel()
+                        .mapToObj(k -> parse(channel, starts[k], Math.max(starts[k], starts[k + 1])))
+                        .toArray(Record[][]::new);
+
+                int total = 0;
+                for (Record[] part : parts) {
+                    total += part.length;
+                }
+                Record[] records = new Record[total];
+                int filled = 0;
+                for (Record[] part : parts) {
+                    System.arraycopy(part, 0, records, filled, part.length);
+                    filled += part.length;
+                }
+                return records;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * This function finds the first record that starts at or after a position of the file.
+     *
+     * @param channel the file
+     * @param position the position where the search starts
+     * @param before the number of newlines before the position
+     * @param size the size of the file
+     * @return the position of the first label at or after the position, or the size of the file
+     */
+    private static long boundary(FileChannel channel, long position, long before, long size) {
+        long start = position;
+        long line = before; // The number of the line that begins at start, once start is at a line start
+        if (readByte(channel, position - 1) != '\n') {
+            start = lineEnd(channel, position, size);
+            line++;
+        }
+        if (line % 2 == 1) {
+            start = lineEnd(channel, start, size); // Skip the data line of the record
+        }
+        return start;
+    }
+
+    /**
+     * This function finds the start of the line that follows a position of the file.
+     *
+     * @param channel the file
+     * @param position the position where the search starts
+     * @param size the size of the file
+     * @return the position just after the first newline at or after the position, or the size of the file
+     */
+    private static long lineEnd(FileChannel channel, long position, long size) {
+        long from = position;
+        while (from < size) {
+            int length = (int) Math.min(WINDOW_SIZE, size - from);
+            MappedByteBuffer window = map(channel, from, length);
+            int i = 0;
+            while (i < length) {
+                if (window.get(i) == '\n') {
+                    return from + i + 1;
+                }
+                i++;
+            }
+            from += length;
+        }
+        return size;
+    }
+
+    /**
+     * This function reads one byte of the file.
+     *
+     * @param channel the file
+     * @param position the position of the byte
+     * @return the byte
+     */
+    private static byte readByte(FileChannel channel, long position) {
+        return map(channel, position, 1).get(0);
+    }
+
+    /**
+     * This function counts the newlines between two positions of the file.
+     *
+     * @param channel the file
+     * @param from the first position (inclusive)
+     * @param to the last position (exclusive)
+     * @return the number of newlines
+     */
+    private static long countNewlines(FileChannel channel, long from, long to) {
+        MappedByteBuffer buffer = map(channel, from, (int) (to - from));
+        byte[] window = new byte[Math.min(WINDOW_SIZE, buffer.limit())]; // Bulk copies are much faster than reading byte by byte
+        long count = 0;
+        int done = 0;
+        while (done < buffer.limit()) {
+            int length = Math.min(window.length, buffer.limit() - done);
+            buffer.get(done, window, 0, length);
+            int i = 0;
+            while (i < length) {
+                if (window[i] == '\n') {
+                    count++;
+                }
+                i++;
+            }
+            done += length;
+        }
+        return count;
+    }
+
+    /**
+     * This function decodes the records of a chunk of the file. The chunk starts at a label.
+     *
+     * @param channel the file
+     * @param from the first position of the chunk (inclusive)
+     * @param to the last position of the chunk (exclusive)
+     * @return the records of the chunk, in order
+     */
+    private static Record[] parse(FileChannel channel, long from, long to) {
+        MappedByteBuffer buffer = map(channel, from, (int) (to - from));
+        int limit = buffer.limit();
+        byte[] bytes = new byte[limit]; // The chunk is copied at once, which is much faster than reading byte by byte
+        buffer.get(0, bytes, 0, limit);
+
+        List<Record> records = new ArrayList<>();
+        String label = null; // The label of the record being read, or null before its label line
+        int position = 0;
+        while (position < limit) {
+            int end = position;
+            while (end < limit && bytes[end] != '\n') {
+                end++;
+            }
+            int length = end - position;
+            if (length > 0 && bytes[end - 1] == '\r') {
+                length--;
+            }
+            String line = new String(bytes, position, length, StandardCharsets.UTF_8);
+
+            if (label == null) {
+                label = line;
+            } else {
+                records.add(toRecord(label, line));
+                label = null;
+            }
+            position = end + 1;
+        }
+        return records.toArray(new Record[0]);
+    }
+
+    /**
+     * This function creates the record of a label and its data line.
+     *
+     * @param label the label line
+     * @param dataLine the data line
+     * @return the record
+     */
+    public static Record toRecord(String label, String dataLine) {
+        int type = determineType(dataLine);
+
+        // Check if the data type is translation and adjust data accordingly
+        if (type == 2) {
+            dataLine = dataLine.substring(1);
+        }
+        return new Record(new Key(label, type), dataLine);
+    }
+
+    /**
+     * This function determines the data type based on file prefix or suffix.
+     *
+     * @param dataLine the data line to evaluate
+     * @return an integer representing the type
+     */
+    public static int determineType(String dataLine) {
+        if (dataLine.startsWith("/")) {
+            return 2; // translation
+        } else if (dataLine.startsWith("-")) {
+            return 3; // sound
+        } else if (dataLine.startsWith("+")) {
+            return 4; // music
+        } else if (dataLine.startsWith("*")) {
+            return 5; // voice
+        } else if (dataLine.endsWith(".jpg")) {
+            return 6; // image
+        } else if (dataLine.endsWith(".gif")) {
+            return 7; // animated image
+        } else if (dataLine.endsWith(".html")) {
+            return 8; // webpage
+        } else {
+            return 1; // definition
+        }
+    }
+
+    /**
+     * This function maps a region of the file into memory for reading.
+     *
+     * @param channel the file
+     * @param position the start of the region
+     * @param length the length of the region
+     * @return the mapped region
+     */
+    private static MappedByteBuffer map(FileChannel channel, long position, int length) {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,524 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * FrozenDictionary.java
+ * Ali Ajwani
+ *
+ * This class represents a dictionary for records that are mostly read once they are loaded. The
+ * records are frozen into arrays in Eytzinger order: the root of an implicit balanced tree is at
+ * index 1 and the children of index k are at 2k and 2k + 1, so a search needs no node references
+ * and the first levels it visits share a few cache lines. The first four characters of every label
+ * are packed into a long and the types are kept in an int array, so most comparisons of a search
+ * read only primitive arrays and the label strings are only reached on a tie.
+ *
+ * Changes do not touch the arrays. Inserted records go to a small BSTDictionary, the delta, and
+ * removed frozen records are marked with a tombstone. Once the changes outnumber a fraction of
+ * the frozen records, the frozen records and the delta are merged into new arrays.
+ */
+public class FrozenDictionary implements BSTDictionaryADT {
+    private static final int MIN_CHANGES = 1024; // The number of changes below which the delta is never merged
+    private static final int MERGE_FRACTION = 8; // The delta is merged once the changes exceed this fraction of the frozen records
+
+    private int n; // The number of frozen records, at indexes 1 to n
+    private Record[] records; // The frozen records, in Eytzinger order
+    private String[] labels; // The labels of the frozen records
+    private long[] heads; // The first four characters of every label, packed so that they compare like the labels
+    private int[] types; // The types of the frozen records
+    private boolean[] removed; // Whether a frozen record has been removed
+    private BSTDictionary delta; // The records inserted since the last merge
+    private int changes; // The number of puts and removes since the last merge
+
+    /**
+     * This function initializes an empty frozen dictionary.
+     */
+    public FrozenDictionary() {
+        freeze(new Record[0]);
+    }
+
+    /**
+     * This function initializes a frozen dictionary with the records of another dictionary.
+     *
+     * @param source the dictionary whose records are frozen
+     */
+    public FrozenDictionary(BSTDictionaryADT source) {
+        List<Record> sorted = new ArrayList<>();
+        Iterator<Record> it = source.iterator();
+        while (it.hasNext()) {
+            sorted.add(it.next());
+        }
+        freeze(sorted.toArray(new Record[0]));
+    }
+
+    /**
+     * This function lays out sorted records in Eytzinger order and empties the delta.
+     *
+     * @param sorted the records in increasing order of their keys
+     */
+    private void freeze(Record[] sorted) {
+        n = sorted.length;
+        records = new Record[n + 1];
+        labels = new String[n + 1];
+        heads = new long[n + 1];
+        types = new int[n + 1];
+        removed = new boolean[n + 1];
+        fill(sorted, 0, 1);
+        delta = new BSTDictionary();
+        changes = 0;
+    }
+
+    /**
+     * This function places sorted records in the subtree at an index, in order.
+     *
+     * @param sorted the records in increasing order of their keys
+     * @param i the position of the next record to place
+     * @param k the index of the root of the subtree
+     * @return the position of the next record to place after the subtree
+     */
+    private int fill(Record[] sorted, int i, int k) {
+        if (k <= n) {
+            i = fill(sorted, i, 2 * k);
+            Key key = sorted[i].getKey();
+            records[k] = sorted[i];
+            labels[k] = key.getLabel();
+            heads[k] = head(key.getLabel());
+            types[k] = key.getType();
+            i = fill(sorted, i + 1, 2 * k + 1);
+        }
+        return i;
+    }
+
+    /**
+     * This function packs the first four characters of a label into a long. Shorter labels are
+     * padded with zeros, so two heads compared as unsigned numbers are in the order of the labels
+     * unless they are equal.
+     *
+     * @param label the label
+     * @return the head of the label
+     */
+    private static long head(String label) {
+        long head = 0;
+        int i = 0;
+        while (i < 4) {
+            head = (head << 16) | (i < label.length() ? label.charAt(i) : 0);
+            i++;
+        }
+        return head;
+    }
+
+    /**
+     * This function compares the frozen key at an index with a key.
+     *
+     * @param k the index of the frozen key
+     * @param head the head of the label of the other key
+     * @param key the other key
+     * @return a negative number, 0 or a positive number as the frozen key is smaller than, equal to or larger than key
+     */
+    private int compare(int k, long head, Key key) {
+        int c = Long.compareUnsigned(heads[k], head);
+        if (c == 0) {
+            c = labels[k].compareTo(key.getLabel());
+        }
+        return c != 0 ? c : Integer.compare(types[k], key.getType());
+    }
+
+    /**
+     * This function checks whether the frozen key at an index is equal to a key.
+     *
+     * @param k the index of the frozen key, or 0
+     * @param key the other key
+     * @return true if the frozen record at k is not removed and has the key
+     * @return false otherwise
+     */
+    private boolean matches(int k, Key key) {
+        return k != 0 && !removed[k] && types[k] == key.getType() && labels[k].equals(key.getLabel());
+    }
+
+    /**
+     * This function finds the first frozen key larger than (or equal to) a key. The search always walks
+     * down to the bottom of the implicit tree, so its steps do not depend on where the key is, then
+     * climbs back to the last node where it went left.
+     *
+     * @param key the key to search for
+     * @param inclusive whether a frozen key equal to key is a match
+     * @return the index of the first frozen key at least (or above) key, or 0 if there is none
+     */
+    private int search(Key key, boolean inclusive) {
+        long head = head(key.getLabel());
+        int limit = inclusive ? 0 : 1; // The smallest comparison result that counts as a match
+        int k = 1;
+        while (k <= n) {
+            k = 2 * k + (compare(k, head, key) < limit ? 1 : 0);
+        }
+        return k >> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * This function returns the index of the next frozen key in increasing order.
+     *
+     * @param k the index of a frozen key
+     * @return the index of the next frozen key, or 0 if k is the last
+     */
+    private int after(int k) {
+        if (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+            while (2 * k <= n) {
+                k = 2 * k;
+            }
+            return k;
+        }
+        while ((k & 1) == 1) {
+            k >>= 1; // Climb while k is a right child
+        }
+        return k >> 1;
+    }
+
+    /**
+     * This function returns the index of the previous frozen key in increasing order.
+     *
+     * @param k the index of a frozen key
+     * @return the index of the previous frozen key, or 0 if k is the first
+     */
+    private int before(int k) {
+        if (2 * k <= n) {
+            k = 2 * k;
+            while (2 * k + 1 <= n) {
+                k = 2 * k + 1;
+            }
+            return k;
+        }
+        while (k > 1 && (k & 1) == 0) {
+            k >>= 1; // Climb while k is a left child
+        }
+        return k >> 1;
+    }
+
+    /**
+     * This function returns the index of the smallest frozen key.
+     *
+     * @return the index of the smallest frozen key, or 0 if there are none
+     */
+    private int first() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k <= n) {
+            k = 2 * k;
+        }
+        return k;
+    }
+
+    /**
+     * This function returns the index of the largest frozen key.
+     *
+     * @return the index of the largest frozen key, or 0 if there are none
+     */
+    private int last() {
+        if (n == 0) {
+            return 0;
+        }
+        int k = 1;
+        while (2 * k + 1 <= n) {
+            k = 2 * k + 1;
+        }
+        return k;
+    }
+
+    /**
+     * This function skips removed frozen records forwards.
+     *
+     * @param k the index of a frozen key, or 0
+     * @return the index of the first frozen record from k on that is not removed, or 0
+     */
+    private int liveForward(int k) {
+        while (k != 0 && removed[k]) {
+            k = after(k);
+        }
+        return k;
+    }
+
+    /**
+     * This function skips removed frozen records backwards.
+     *
+     * @param k the index of a frozen key, or 0
+     * @return the index of the last frozen record up to k that is not removed, or 0
+     */
+    private int liveBackward(int k) {
+        while (k != 0 && removed[k]) {
+            k = before(k);
+        }
+        return k;
+    }
+
+    /**
+     * This function returns the smaller of two records, either of which may be null.
+     *
+     * @param a the first record
+     * @param b the second record
+     * @return the record with the smaller key, or the one that is not null
+     */
+    private static Record smaller(Record a, Record b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.getKey().compareTo(b.getKey()) <= 0 ? a : b;
+    }
+
+    /**
+     * This function returns the larger of two records, either of which may be null.
+     *
+     * @param a the first record
+     * @param b the second record
+     * @return the record with the larger key, or the one that is not null
+     */
+    private static Record larger(Record a, Record b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.getKey().compareTo(b.getKey()) >= 0 ? a : b;
+    }
+
+    /**
+     * This function retrieves the record associated with the specified key.
+     *
+     * @param k the key of the record to retrieve
+     * @return the record associated with the key, or null if the key is not found
+     */
+    @Override
+    public Record get(Key k) {
+        int i = search(k, true);
+        if (matches(i, k)) {
+            return records[i];
+        }
+        return changes == 0 ? null : delta.get(k);
+    }
+
+    /**
+     * This function inserts a new record into the delta.
+     *
+     * @param d the record to insert
+     * @throws DictionaryException if the record already exists in the dictionary
+     */
+    @Override
+    public void put(Record d) throws DictionaryException {
+        if (matches(search(d.getKey(), true), d.getKey())) {
+            throw new DictionaryException("Duplicate key");
+        }
+        delta.put(d);
+        changed();
+    }
+
+    /**
+     * This function removes the record with the specified key, marking it with a tombstone if it is frozen.
+     *
+     * @param k the key of the record to remove
+     * @throws DictionaryException if the key is not found
+     */
+    @Override
+    public void remove(Key k) throws DictionaryException {
+        int i = search(k, true);
+        if (matches(i, k)) {
+            removed[i] = true;
+        } else {
+            delta.remove(k);
+        }
+        changed();
+    }
+
+    /**
+     * This function counts a change and merges the delta once there are enough changes.
+     */
+    private void changed() {
+        changes++;
+        if (changes > MIN_CHANGES && changes > n / MERGE_FRACTION) {
+            merge();
+        }
+    }
+
+    /**
+     * This function merges the delta into the frozen records and drops the removed ones.
+     */
+    public void merge() {
+        List<Record> sorted = new ArrayList<>();
+        Iterator<Record> it = iterator();
+        while (it.hasNext()) {
+            sorted.add(it.next());
+        }
+        freeze(sorted.toArray(new Record[0]));
+    }
+
+    /**
+     * This function finds the record with the smallest key larger than the specified key.
+     *
+     * @param k the key to find the successor for, which does not need to be in the dictionary
+     * @return the successor record, or null if there is none
+     */
+    @Override
+    public Record successor(Key k) {
+        int i = liveForward(search(k, false));
+        return smaller(i == 0 ? null : records[i], delta.successor(k));
+    }
+
+    /**
+     * This function finds the record with the largest key smaller than the specified key.
+     *
+     * @param k the key to find the predecessor for, which does not need to be in the dictionary
+     * @return the predecessor record, or null if there is none
+     */
+    @Override
+    public Record predecessor(Key k) {
+        int i = search(k, true);
+        i = liveBackward(i == 0 ? last() : before(i));
+        return larger(i == 0 ? null : records[i], delta.predecessor(k));
+    }
+
+    /**
+     * This function returns the record with the smallest key.
+     *
+     * @return the smallest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record smallest() {
+        int i = liveForward(first());
+        return smaller(i == 0 ? null : records[i], delta.smallest());
+    }
+
+    /**
+     * This function returns the record with the largest key.
+     *
+     * @return the largest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record largest() {
+        int i = liveBackward(last());
+        return larger(i == 0 ? null : records[i], delta.largest());
+    }
+
+    /**
+     * This function returns an iterator over all the records in increasing order of their keys.
+     *
+     * @return an iterator starting at the smallest record
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new MergeIterator(first(), delta.iterator(), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are larger than or equal to
+     * the specified key, in increasing order.
+     *
+     * @param fromKey the key to start from, which does not need to be in the dictionary
+     * @return an iterator starting at the first record with a key of at least fromKey
+     */
+    @Override
+    public Iterator<Record> iterator(Key fromKey) {
+        return new MergeIterator(search(fromKey, true), delta.iterator(fromKey), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are in the given range.
+     *
+     * @param fromKey the smallest key of the range (inclusive)
+     * @param toKey the key ending the range (exclusive)
+     * @return an iterator over the records in the range
+     */
+    @Override
+    public Iterator<Record> rangeScan(Key fromKey, Key toKey) {
+        return new MergeIterator(search(fromKey, true), delta.rangeScan(fromKey, toKey), toKey, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose labels start with the given prefix.
+     *
+     * @param prefix the prefix of the labels
+     * @return an iterator over the records whose labels start with the prefix
+     */
+    @Override
+    public Iterator<Record> prefixScan(String prefix) {
+        Key start = new Key(prefix, Integer.MIN_VALUE);
+        return new MergeIterator(search(start, true), delta.prefixScan(prefix), null, start.getLabel());
+    }
+
+    /**
+     * This class walks the frozen records that are not removed and the records of the delta together,
+     * in increasing order of their keys. A key is never both frozen and alive in the delta, so the
+     * walk only has to return the smaller of the two next records at every step.
+     */
+    private class MergeIterator implements Iterator<Record> {
+        private int frozen; // The index of the next frozen record, or 0 past the end
+        private Iterator<Record> changed; // The walk over the delta, which applies the same limits
+        private Record pending; // The next record of the delta, or null past its end
+        private Key end; // The walk stops before the first key larger than or equal to this one, null for no limit
+        private long endHead; // The head of the label of the end key
+        private String prefix; // The walk stops at the first label without this prefix, null for no limit
+
+        /**
+         * This function initializes an iterator starting at a frozen record and a walk over the delta.
+         *
+         * @param frozen the index of the first frozen record to consider, or 0
+         * @param changed the walk over the delta
+         * @param end the key at which the walk stops (exclusive), or null
+         * @param prefix the prefix every returned label must start with, or null
+         */
+        private MergeIterator(int frozen, Iterator<Record> changed, Key end, String prefix) {
+            this.changed = changed;
+            this.end = end;
+            this.endHead = end == null ? 0 : head(end.getLabel());
+            this.prefix = prefix;
+            this.frozen = limit(liveForward(frozen));
+            this.pending = changed.hasNext() ? changed.next() : null;
+        }
+
+        /**
+         * This function checks a frozen record against the limits of the walk.
+         *
+         * @param k the index of the frozen record, or 0
+         * @return k if the record is within the limits, 0 otherwise
+         */
+        private int limit(int k) {
+            if (k == 0) {
+                return 0;
+            }
+            if ((end != null && compare(k, endHead, end) >= 0) || (prefix != null && !labels[k].startsWith(prefix))) {
+                return 0; // Past the end of the range
+            }
+            return k;
+        }
+
+        /**
+         * This function checks if there are more records to return.
+         *
+         * @return true if there are more records
+         * @return false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return frozen != 0 || pending != null;
+        }
+
+        /**
+         * This function returns the next record and moves to the one after it.
+         *
+         * @return the next record
+         * @throws NoSuchElementException if there are no more records
+         */
+        @Override
+        public Record next() {
+            if (frozen == 0 && pending == null) {
+                throw new NoSuchElementException();
+            }
+            if (pending == null || (frozen != 0 && records[frozen].getKey().compareTo(pending.getKey()) < 0)) {
+                Record record = records[frozen];
+                frozen = limit(liveForward(after(frozen)));
+                return record;
+            }
+            Record record = pending;
+            pending = changed.hasNext() ? changed.next() : null;
+            return record;
+        }
+    }
+}
@@ -1,4 +1,7 @@
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -8,9 +11,11 @@ import java.util.StringTokenizer;
  * This class implements a user interface for managing an ordered dictionary of records.
  * The commands allow users to define, translate, play media, display images and webpages,
  * add or delete records, and list or retrieve the first and last entries in the dictionary.
+ * The input file is either a text file of records or a snapshot written by the save command,
+ * which is opened read-only without being parsed.
  */
 public class Interface {
-    private static BSTDictionary dictionary = new BSTDictionary();
+    private static BSTDictionaryADT dictionary = new BSTDictionary();
 
     /**
      * This function is the main entry point of the program, which loads records and processes user commands.
@@ -24,7 +29,11 @@ public class Interface {
         }
 
         try {
-            loadRecords(args[0]);
+            if (SnapshotDictionary.isSnapshot(args[0])) {
+                dictionary = new SnapshotDictionary(args[0]);
+            } else {
+                loadRecords(args[0]);
+            }
             runUserInterface();
         } catch (Exception e) {
             e.printStackTrace();
@@ -32,65 +41,18 @@ public class Interface {
     }
 
     /**
- * This function loads records from the specified file into the dictionary.
- *
- * @param fileName the name of the input file
- * @throws IOException if an I/O error occurs
- * @throws DictionaryException if a duplicate record is found
- */
-private static void loadRecords(String fileName) throws IOException, DictionaryException {
-    BufferedReader reader = new BufferedReader(new FileReader(fileName)); // Open the file for reading
-    String label;
-
-    // Read records line by line until the end of the file is reached
-    while ((label = reader.readLine()) != null) {
-        String dataLine = reader.readLine(); // Read the data associated with the label
-        if (dataLine == null) break; // Exit loop if data line is missing
-
-        int type = determineType(dataLine); 
-
-        // Check if the data type is translation and adjust data accordingly
-        if (type == 2) {
-            dataLine = dataLine.substring(1); 
-        }
-
-        // Create a Key object using the label and type
-        Key key = new Key(label, type);
-
-        // Create a Record object with the key and data line
-        Record record = new Record(key, dataLine);
-
-        // Insert the record into the dictionary
-        dictionary.put(record);
-    }
-    reader.close(); // Close the file reader after processing
-}
-
-
-    /**
-     * This function determines the data type based on file prefix or suffix.
+     * This function loads records from the specified file into the dictionary.
+     * The file is decoded in parallel by a DictionaryLoader.
      *
-     * @param dataLine the data line to evaluate
-     * @return an integer representing the type
+     * @param fileName the name of the input file
+     * @throws IOException if an I/O error occurs
+     * @throws DictionaryException if a duplicate record is found
      */
-    private static int determineType(String dataLine) {
-        if (dataLine.startsWith("/")) {
-            return 2; // translation
-        } else if (dataLine.startsWith("-")) {
-            return 3; // sound
-        } else if (dataLine.startsWith("+")) {
-            return 4; // music
-        } else if (dataLine.startsWith("*")) {
-            return 5; // voice
-        } else if (dataLine.endsWith(".jpg")) {
-            return 6; // image
-        } else if (dataLine.endsWith(".gif")) {
-            return 7; // animated image
-        } else if (dataLine.endsWith(".html")) {
-            return 8; // webpage
-        } else {
-            return 1; // definition
-        }        
+    private static void loadRecords(String fileName) throws IOException, DictionaryException {
+        Record[] records = new DictionaryLoader().load(fileName);
+
+        // Sort the records and build a balanced tree from them in one go
+        ((BSTDictionary) dictionary).bulkLoad(records);
     }
 
     /**
@@ -125,6 +87,7 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
                     case "list": listRecords(tokenizer); break;
                     case "first": displayFirstRecord(); break;
                     case "last": displayLastRecord(); break;
+                    case "save": saveSnapshot(tokenizer); break;
                     default: System.out.println("Invalid command."); break;
                 }
             } catch (Exception e) {
@@ -150,7 +113,7 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
         String label = tokenizer.nextToken();
         Key key = new Key(label, type);
         // Get the record from the dictionary and print its data if it exists, otherwise print an error message
-        Record record = dictionary.get(key);
+        Record record = lookup(key);
         System.out.println(record != null ? record.getDataItem() : String.format(errorMessage, label));
     }
     
@@ -171,7 +134,7 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
         String label = tokenizer.nextToken();
         Key key = new Key(label.toLowerCase(), type);
         // Fetch the record; if found, attempt to play the file, otherwise print an error message
-        Record record = dictionary.get(key);
+        Record record = lookup(key);
         if (record != null) {
             try {
                 new SoundPlayer().play(record.getDataItem());
@@ -199,7 +162,7 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
         // Create a key using the label and type, then attempt to fetch the record from the dictionary
         String label = tokenizer.nextToken();
         Key key = new Key(label.toLowerCase(), type);
-        Record record = dictionary.get(key);
+        Record record = lookup(key);
         // If the record exists, try to display the image, or else show an error message
         if (record != null) {
             try {
@@ -226,7 +189,7 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
         // Create a key for the webpage and attempt to retrieve it from the dictionary
         String label = tokenizer.nextToken();
         Key key = new Key(label, 8);
-        Record record = dictionary.get(key);
+        Record record = lookup(key);
         // If the webpage record exists, display it; otherwise, print an error message
         if (record != null) {
             try {
@@ -250,6 +213,10 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
             System.out.println("Invalid command.");
             return;
         }
+        if (dictionary instanceof SnapshotDictionary) {
+            System.out.println("The dictionary was opened from a snapshot and cannot be changed");
+            return;
+        }
         // Retrieve the label and type, then create a key for the dictionary search
         String label = tokenizer.nextToken();
         int type = Integer.parseInt(tokenizer.nextToken());
@@ -273,6 +240,10 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
             System.out.println("Invalid command.");
             return;
         }
+        if (dictionary instanceof SnapshotDictionary) {
+            System.out.println("The dictionary was opened from a snapshot and cannot be changed");
+            return;
+        }
         // Retrieve the label and type and concatenate any remaining tokens as the data
         String label = tokenizer.nextToken();
         int type = Integer.parseInt(tokenizer.nextToken());
@@ -292,7 +263,8 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
     }
     
     /**
-     * This function lists records with labels starting with the given prefix.
+     * This function lists records with labels starting with the given prefix. When a count k
+     * follows the prefix, only the k most looked-up labels are listed, most popular first.
      *
      * @param tokenizer the tokenizer containing the command arguments
      */
@@ -304,25 +276,21 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
         }
         
         String prefix = tokenizer.nextToken().toLowerCase();
-        Record current = dictionary.smallest();
+        if (tokenizer.hasMoreTokens()) {
+            listPopular(prefix, Integer.parseInt(tokenizer.nextToken()));
+            return;
+        }
+        Iterator<Record> records = dictionary.prefixScan(prefix);
         boolean hasMatches = false;
     
-        // Iterate through all records in the dictionary
-        while (current != null) {
-            Key key = current.getKey();
-            String label = key.getLabel();
-    
-            // Check if the label matches the specified prefix and print it if it does
-            if (label.startsWith(prefix)) {
-                if (hasMatches) {
-                    System.out.print(", "); // Adds a comma between entries if there are multiple matches
-                }
-                System.out.print(label);
-                hasMatches = true;
+        // Iterate through the records whose labels start with the prefix, which are next to each other in key order
+        while (records.hasNext()) {
+            String label = records.next().getKey().getLabel();
+            if (hasMatches) {
+                System.out.print(", "); // Adds a comma between entries if there are multiple matches
             }
-            
-            // Move to the next record in the dictionary
-            current = dictionary.successor(key);
+            System.out.print(label);
+            hasMatches = true;
         }
     
         // If no matches were found, print a message indicating this; otherwise, add a new line
@@ -332,7 +300,78 @@ private static void loadRecords(String fileName) throws IOException, DictionaryE
             System.out.println(); // Ends the line after listing all matching labels
         }
     }
+
+    /**
+     * This function lists the most looked-up labels starting with the given prefix.
+     *
+     * @param prefix the prefix of the labels
+     * @param k the number of labels to list
+     */
+    private static void listPopular(String prefix, int k) {
+        List<String> labels = mostPopular(prefix, k);
+        if (labels.isEmpty()) {
+            System.out.println("No label attributes in the ordered dictionary start with prefix " + prefix);
+        } else {
+            System.out.println(String.join(", ", labels));
+        }
+    }
     
+    /**
+     * This function saves the dictionary to a snapshot file.
+     *
+     * @param tokenizer the tokenizer containing the command arguments
+     */
+    private static void saveSnapshot(StringTokenizer tokenizer) {
+        // Verify that a file name is provided; if not, display an error
+        if (!tokenizer.hasMoreTokens()) {
+            System.out.println("Invalid command.");
+            return;
+        }
+        String fileName = tokenizer.nextToken();
+        try {
+            SnapshotDictionary.write(dictionary, fileName);
+        } catch (IOException e) {
+            System.out.println("Error saving snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * This function retrieves a record on behalf of the user. Look-ups are counted towards the
+     * popularity of labels, except in a snapshot, which cannot be changed.
+     *
+     * @param key the key of the record
+     * @return the record, or null if it is not in the dictionary
+     */
+    private static Record lookup(Key key) {
+        if (dictionary instanceof BSTDictionary) {
+            return ((BSTDictionary) dictionary).lookup(key);
+        }
+        return dictionary.get(key);
+    }
+
+    /**
+     * This function returns the most looked-up labels starting with the given prefix. A snapshot
+     * does not count look-ups, so its labels are returned in increasing order instead.
+     *
+     * @param prefix the prefix of the labels
+     * @param k the number of labels wanted
+     * @return up to k labels with the prefix
+     */
+    private static List<String> mostPopular(String prefix, int k) {
+        if (dictionary instanceof BSTDictionary) {
+            return ((BSTDictionary) dictionary).mostPopular(prefix, k);
+        }
+        List<String> labels = new ArrayList<>();
+        Iterator<Record> records = dictionary.prefixScan(prefix);
+        while (records.hasNext() && labels.size() < k) {
+            String label = records.next().getKey().getLabel();
+            if (labels.isEmpty() || !labels.get(labels.size() - 1).equals(label)) {
+                labels.add(label); // The types of a label are next to each other
+            }
+        }
+        return labels;
+    }
+
     /**
      * This function displays the smallest record in the dictionary.
      */
@@ -0,0 +1,404 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * PersistentDictionary.java
+ * Ali Ajwani
+ *
+ * This class represents a dictionary that can be read by many threads while it is being changed.
+ * It keeps an AVL tree whose nodes are never changed once they are built. An update copies the
+ * O(log n) nodes on the path from the root to the changed node, shares every other node with the
+ * previous tree, and then publishes the new root with a single write to a volatile field.
+ *
+ * Readers take no lock: every query reads the root once and works on that version of the tree,
+ * which no later update can touch, so it always sees a consistent snapshot. Iterators also walk
+ * the version they started on, so the dictionary may be changed while they are in use. Writers
+ * are synchronized with each other, so updates are applied one at a time.
+ */
+public class PersistentDictionary implements BSTDictionaryADT {
+    private volatile Node root; // The current version of the tree, or null for an empty tree
+
+    /**
+     * This function initializes an empty dictionary.
+     */
+    public PersistentDictionary() {
+        root = null;
+    }
+
+    /**
+     * This function retrieves the record associated with the specified key.
+     *
+     * @param k the key of the record to retrieve
+     * @return the record associated with the key, or null if the key is not found
+     */
+    @Override
+    public Record get(Key k) {
+        Node u = root;
+        while (u != null) {
+            int c = k.compareTo(u.record.getKey());
+            if (c == 0) {
+                return u.record;
+            }
+            u = c < 0 ? u.left : u.right;
+        }
+        return null;
+    }
+
+    /**
+     * This function inserts a new record into the dictionary and publishes the new version of the tree.
+     *
+     * @param d the record to insert
+     * @throws DictionaryException if the record already exists in the dictionary
+     */
+    @Override
+    public synchronized void put(Record d) throws DictionaryException {
+        root = insert(root, d);
+    }
+
+    /**
+     * This function removes the record with the specified key and publishes the new version of the tree.
+     *
+     * @param k the key of the record to remove
+     * @throws DictionaryException if the key is not found
+     */
+    @Override
+    public synchronized void remove(Key k) throws DictionaryException {
+        root = remove(root, k);
+    }
+
+    /**
+     * This function finds the record with the smallest key larger than the specified key.
+     *
+     * @param k the key to find the successor for, which does not need to be in the dictionary
+     * @return the successor record, or null if there is none
+     */
+    @Override
+    public Record successor(Key k) {
+        Node u = root;
+        Record best = null;
+        while (u != null) {
+            if (u.record.getKey().compareTo(k) > 0) {
+                best = u.record;
+                u = u.left;
+            } else {
+                u = u.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This function finds the record with the largest key smaller than the specified key.
+     *
+     * @param k the key to find the predecessor for, which does not need to be in the dictionary
+     * @return the predecessor record, or null if there is none
+     */
+    @Override
+    public Record predecessor(Key k) {
+        Node u = root;
+        Record best = null;
+        while (u != null) {
+            if (u.record.getKey().compareTo(k) < 0) {
+                best = u.record;
+                u = u.right;
+            } else {
+                u = u.left;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * This function returns the record with the smallest key.
+     *
+     * @return the smallest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record smallest() {
+        Node u = root;
+        if (u == null) {
+            return null;
+        }
+        while (u.left != null) {
+            u = u.left;
+        }
+        return u.record;
+    }
+
+    /**
+     * This function returns the record with the largest key.
+     *
+     * @return the largest record, or null if the dictionary is empty
+     */
+    @Override
+    public Record largest() {
+        Node u = root;
+        if (u == null) {
+            return null;
+        }
+        while (u.right != null) {
+            u = u.right;
+        }
+        return u.record;
+    }
+
+    /**
+     * This function returns an iterator over all the records in increasing order of their keys,
+     * as they are when the iterator is created.
+     *
+     * @return an iterator starting at the smallest record
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new PathIterator(root, null, null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are larger than or equal to
+     * the specified key, in increasing order, as they are when the iterator is created.
+     *
+     * @param fromKey the key to start from, which does not need to be in the dictionary
+     * @return an iterator starting at the first record with a key of at least fromKey
+     */
+    @Override
+    public Iterator<Record> iterator(Key fromKey) {
+        return new PathIterator(root, fromKey, null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are in the given range, as
+     * they are when the iterator is created.
+     *
+     * @param fromKey the smallest key of the range (inclusive)
+     * @param toKey the key ending the range (exclusive)
+     * @return an iterator over the records in the range
+     */
+    @Override
+    public Iterator<Record> rangeScan(Key fromKey, Key toKey) {
+        return new PathIterator(root, fromKey, toKey, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose labels start with the given prefix,
+     * as they are when the iterator is created.
+     *
+     * @param prefix the prefix of the labels
+     * @return an iterator over the records whose labels start with the prefix
+     */
+    @Override
+    public Iterator<Record> prefixScan(String prefix) {
+        Key start = new Key(prefix, Integer.MIN_VALUE);
+        return new PathIterator(root, start, null, start.getLabel());
+    }
+
+    /**
+     * This function returns the height of a subtree.
+     *
+     * @param u the root of the subtree, or null
+     * @return the height, 0 for an empty subtree
+     */
+    private static int height(Node u) {
+        return u == null ? 0 : u.height;
+    }
+
+    /**
+     * This function builds a node over two subtrees whose heights differ by at most two, rotating
+     * it into AVL balance if they differ by two.
+     *
+     * @param record the record of the node
+     * @param left the left subtree
+     * @param right the right subtree
+     * @return the root of the balanced subtree
+     */
+    private static Node balance(Record record, Node left, Node right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.record, left.left, new Node(record, left.right, right));
+            }
+            Node middle = left.right;
+            return new Node(middle.record, new Node(left.record, left.left, middle.left),
+                    new Node(record, middle.right, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.record, new Node(record, left, right.left), right.right);
+            }
+            Node middle = right.left;
+            return new Node(middle.record, new Node(record, left, middle.left),
+                    new Node(right.record, middle.right, right.right));
+        }
+        return new Node(record, left, right);
+    }
+
+    /**
+     * This function builds a new version of a subtree with a record inserted. Only the nodes on the
+     * path to the new node are copied.
+     *
+     * @param u the root of the subtree, or null
+     * @param d the record to insert
+     * @return the root of the new version of the subtree
+     * @throws DictionaryException if the subtree already holds a record with the same key
+     */
+    private static Node insert(Node u, Record d) throws DictionaryException {
+        if (u == null) {
+            return new Node(d, null, null);
+        }
+        int c = d.getKey().compareTo(u.record.getKey());
+        if (c == 0) {
+            throw new DictionaryException("Duplicate key");
+        }
+        if (c < 0) {
+            return balance(u.record, insert(u.left, d), u.right);
+        }
+        return balance(u.record, u.left, insert(u.right, d));
+    }
+
+    /**
+     * This function builds a new version of a subtree with a record removed. Only the nodes on the
+     * path to the removed node, and to its successor when it has two children, are copied.
+     *
+     * @param u the root of the subtree, or null
+     * @param k the key of the record to remove
+     * @return the root of the new version of the subtree
+     * @throws DictionaryException if the subtree holds no record with the key
+     */
+    private static Node remove(Node u, Key k) throws DictionaryException {
+        if (u == null) {
+            throw new DictionaryException("Key not found");
+        }
+        int c = k.compareTo(u.record.getKey());
+        if (c < 0) {
+            return balance(u.record, remove(u.left, k), u.right);
+        }
+        if (c > 0) {
+            return balance(u.record, u.left, remove(u.right, k));
+        }
+        if (u.left == null || u.right == null) {
+            return u.left == null ? u.right : u.left;
+        }
+        Node s = u.right;
+        while (s.left != null) {
+            s = s.left;
+        }
+        return balance(s.record, u.left, removeSmallest(u.right));
+    }
+
+    /**
+     * This function builds a new version of a subtree without its smallest record.
+     *
+     * @param u the root of the subtree, which is not empty
+     * @return the root of the new version of the subtree
+     */
+    private static Node removeSmallest(Node u) {
+        if (u.left == null) {
+            return u.right;
+        }
+        return balance(u.record, removeSmallest(u.left), u.right);
+    }
+
+    /**
+     * This class represents a node of the tree. Its fields are final, so a node that has been
+     * published through the volatile root is seen complete by every thread.
+     */
+    private static final class Node {
+        private final Record record; // The record of the node
+        private final Node left; // The left subtree, or null
+        private final Node right; // The right subtree, or null
+        private final int height; // The height of the subtree at this node
+
+        /**
+         * This function initializes a node over two subtrees.
+         *
+         * @param record the record of the node
+         * @param left the left subtree, or null
+         * @param right the right subtree, or null
+         */
+        private Node(Record record, Node left, Node right) {
+            this.record = record;
+            this.left = left;
+            this.right = right;
+            this.height = 1 + Math.max(PersistentDictionary.height(left), PersistentDictionary.height(right));
+        }
+    }
+
+    /**
+     * This class walks one version of the tree in increasing order of keys, optionally stopping at
+     * an end key or at the first label without a prefix. Without parent references, it keeps the
+     * nodes whose records are still to be returned on the path from the root in a stack.
+     */
+    private static class PathIterator implements Iterator<Record> {
+        private Deque<Node> path = new ArrayDeque<>(); // The nodes still to be returned, the next one on top
+        private Key end; // The walk stops before the first key larger than or equal to this one, null for no limit
+        private String prefix; // The walk stops at the first label without this prefix, null for no limit
+
+        /**
+         * This function initializes an iterator over a version of the tree.
+         *
+         * @param root the root of the version to walk
+         * @param from the key to start from (inclusive), or null to start at the smallest record
+         * @param end the key at which the walk stops (exclusive), or null
+         * @param prefix the prefix every returned label must start with, or null
+         */
+        private PathIterator(Node root, Key from, Key end, String prefix) {
+            this.end = end;
+            this.prefix = prefix;
+            Node u = root;
+            while (u != null) {
+                if (from == null || u.record.getKey().compareTo(from) >= 0) {
+                    path.push(u);
+                    u = u.left;
+                } else {
+                    u = u.right;
+                }
+            }
+            limit();
+        }
+
+        /**
+         * This function empties the stack if the next record is past the limits of the walk.
+         */
+        private void limit() {
+            if (path.isEmpty()) {
+                return;
+            }
+            Key key = path.peek().record.getKey();
+            if ((end != null && key.compareTo(end) >= 0) || (prefix != null && !key.getLabel().startsWith(prefix))) {
+                path.clear(); // Past the end of the range
+            }
+        }
+
+        /**
+         * This function checks if there are more records to return.
+         *
+         * @return true if there are more records
+         * @return false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        /**
+         * This function returns the next record and moves to the one after it.
+         *
+         * @return the next record
+         * @throws NoSuchElementException if there are no more records
+         */
+        @Override
+        public Record next() {
+            if (path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node u = path.pop();
+            Node v = u.right;
+            while (v != null) {
+                path.push(v);
+                v = v.left;
+            }
+            limit();
+            return u.record;
+        }
+    }
+}
@@ -0,0 +1,582 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * RadixTrie.java
+ * Ali Ajwani
+ *
+ * This class represents a compressed trie (radix tree) over the labels of a dictionary.
+ * Every edge holds a run of characters rather than a single one, so the trie has at most
+ * two nodes per distinct label however long the labels are. Each node counts the labels
+ * in its subtree, which lets the number of labels with a prefix be found by walking the
+ * prefix alone. A label may be added several times (once per record that has it) and stays
+ * in the trie until it has been removed as many times.
+ *
+ * Every label also has a popularity, the number of times it was looked up, and every node
+ * keeps the most popular labels of its subtree (most popular first, ties in label order).
+ * The most popular labels with a prefix are then read from the node of the prefix without
+ * looking at the rest of its subtree. Asking for more labels than a node keeps falls back to
+ * ranking every label of the subtree.
+ */
+public class RadixTrie {
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+    private static final int DEFAULT_TOP = 10; // The default number of popular labels kept per node
+
+    private Node root; // The root of the trie, whose edge is empty
+    private int topSize; // The number of popular labels kept per node
+
+    /**
+     * This class represents a label of the trie. It stays the same object while the nodes around
+     * it are split and merged, so the lists of popular labels can refer to it.
+     */
+    private static class Entry {
+        private final String label; // The label
+        private int records; // The number of times the label was added
+        private long popularity; // The number of times the label was looked up
+
+        /**
+         * This function initializes an entry for a label added once.
+         *
+         * @param label the label
+         */
+        private Entry(String label) {
+            this.label = label;
+            this.records = 1;
+        }
+
+        /**
+         * This function checks if this entry ranks before another in the lists of popular labels.
+         *
+         * @param e the entry to compare with
+         * @return true if this entry is more popular, or as popular with a smaller label
+         * @return false otherwise
+         */
+        private boolean before(Entry e) {
+            return popularity != e.popularity ? popularity > e.popularity : label.compareTo(e.label) < 0;
+        }
+    }
+
+    /**
+     * This class represents a node of the trie.
+     */
+    private static class Node {
+        private String edge; // The characters on the edge leading into this node
+        private Entry entry; // The label ending at this node, or null
+        private int labels; // The number of distinct labels ending in the subtree of this node
+        private Entry[] top = NO_ENTRIES; // The most popular labels of the subtree, most popular first
+        private char[] keys = NO_KEYS; // The first character of each child's edge, in increasing order
+        private Node[] children = NO_CHILDREN; // The children, in the order of keys
+
+        /**
+         * This function initializes a node with the given edge.
+         *
+         * @param edge the characters on the edge leading into the node
+         */
+        private Node(String edge) {
+            this.edge = edge;
+        }
+
+        /**
+         * This function finds the child whose edge starts with the given character.
+         *
+         * @param c the first character of the edge
+         * @return the index of the child, or (-(insertion point) - 1) if there is none
+         */
+        private int find(char c) {
+            int low = 0;
+            int high = keys.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < c) {
+                    low = mid + 1;
+                } else if (keys[mid] > c) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        /**
+         * This function inserts a child at the given index.
+         *
+         * @param index the index of the new child
+         * @param child the child to insert
+         */
+        private void insertChild(int index, Node child) {
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newKeys[index] = child.edge.charAt(0);
+            newChildren[index] = child;
+            System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        /**
+         * This function removes the child at the given index.
+         *
+         * @param index the index of the child to remove
+         */
+        private void removeChild(int index) {
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+
+    /**
+     * This function initializes an empty trie that keeps a default number of popular labels per node.
+     */
+    public RadixTrie() {
+        this(DEFAULT_TOP);
+    }
+
+    /**
+     * This function initializes an empty trie that keeps the given number of popular labels per node.
+     *
+     * @param topSize the largest number of popular labels a query can return
+     */
+    public RadixTrie(int topSize) {
+        this.root = new Node("");
+        this.topSize = topSize;
+    }
+
+    /**
+     * This function returns the number of distinct labels in the trie.
+     *
+     * @return the number of labels
+     */
+    public int size() {
+        return root.labels;
+    }
+
+    /**
+     * This function adds a label to the trie, or counts one more record for it if it is already there.
+     *
+     * @param label the label to add
+     */
+    public void add(String label) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (true) {
+            path.add(node);
+            if (i == label.length()) {
+                if (node.entry != null) {
+                    node.entry.records++;
+                } else {
+                    node.entry = new Entry(label); // A new label ends at an existing node
+                    countNewLabel(path, node.entry);
+                }
+                return;
+            }
+
+            int index = node.find(label.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(label.substring(i)); // No edge starts with this character
+                leaf.entry = new Entry(label);
+                node.insertChild(-index - 1, leaf);
+                path.add(leaf);
+                countNewLabel(path, leaf.entry);
+                return;
+            }
+
+            Node child = node.children[index];
+            int common = commonLength(child.edge, label, i);
+            if (common < child.edge.length()) {
+                // The label leaves the edge part way: split the edge at that point
+                Node middle = new Node(child.edge.substring(0, common));
+                child.edge = child.edge.substring(common);
+                middle.keys = new char[] {child.edge.charAt(0)};
+                middle.children = new Node[] {child};
+                middle.labels = child.labels;
+                middle.top = child.top.clone();
+                node.children[index] = middle;
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+    }
+
+    /**
+     * This function removes one record's use of a label. The label leaves the trie once every
+     * record that added it has removed it.
+     *
+     * @param label the label to remove
+     * @return true if the label was in the trie
+     * @return false otherwise
+     */
+    public boolean remove(String label) {
+        List<Node> path = new ArrayList<>();
+        List<Integer> indexes = new ArrayList<>(); // The index of each node of the path below its parent
+        Node node = root;
+        int i = 0;
+        path.add(node);
+        while (i < label.length()) {
+            int index = node.find(label.charAt(i));
+            if (index < 0 || !label.startsWith(node.children[index].edge, i)) {
+                return false;
+            }
+            node = node.children[index];
+            i += node.edge.length();
+            path.add(node);
+            indexes.add(index);
+        }
+        if (node.entry == null) {
+            return false;
+        }
+        if (--node.entry.records > 0) {
+            return true; // Other records still have this label
+        }
+
+        Entry removed = node.entry;
+        node.entry = null;
+        for (Node u : path) {
+            u.labels--;
+        }
+        // Remove the node if it is now empty, then merge away a node left with a single child and no label
+        int depth = path.size() - 1;
+        if (depth > 0 && node.children.length == 0) {
+            Node parent = path.get(depth - 1);
+            parent.removeChild(indexes.get(depth - 1));
+            node = parent;
+            depth--;
+        }
+        if (depth > 0 && node.entry == null && node.children.length == 1) {
+            Node child = node.children[0];
+            node.edge = node.edge + child.edge;
+            node.entry = child.entry;
+            node.keys = child.keys;
+            node.children = child.children;
+            node.top = child.top;
+        }
+
+        // Rebuild the popular labels of the remaining nodes that listed the removed label, deepest first
+        while (depth >= 0) {
+            Node u = path.get(depth);
+            if (indexOf(u.top, removed) >= 0) {
+                rebuildTop(u);
+            }
+            depth--;
+        }
+        return true;
+    }
+
+    /**
+     * This function checks if a label is in the trie.
+     *
+     * @param label the label to look for
+     * @return true if the label is in the trie
+     * @return false otherwise
+     */
+    public boolean contains(String label) {
+        Node node = root;
+        int i = 0;
+        while (i < label.length()) {
+            int index = node.find(label.charAt(i));
+            if (index < 0 || !label.startsWith(node.children[index].edge, i)) {
+                return false;
+            }
+            node = node.children[index];
+            i += node.edge.length();
+        }
+        return node.entry != null;
+    }
+
+    /**
+     * This function counts the distinct labels that start with the given prefix. Only the nodes
+     * on the path of the prefix are visited.
+     *
+     * @param prefix the prefix of the labels
+     * @return the number of labels with the prefix
+     */
+    public int countPrefix(String prefix) {
+        Node node = locate(prefix);
+        return node == null ? 0 : node.labels;
+    }
+
+    /**
+     * This function lists the distinct labels that start with the given prefix, in increasing order.
+     *
+     * @param prefix the prefix of the labels
+     * @return the labels with the prefix
+     */
+    public List<String> withPrefix(String prefix) {
+        List<String> labels = new ArrayList<>();
+        Node node = locate(prefix);
+        if (node != null) {
+            collect(node, labels);
+        }
+        return labels;
+    }
+
+    /**
+     * This function finds the longest label in the trie that is a prefix of the given string.
+     *
+     * @param s the string to match
+     * @return the longest label that s starts with, or null if there is none
+     */
+    public String longestPrefixOf(String s) {
+        Node node = root;
+        int i = 0;
+        int longest = node.entry != null ? 0 : -1;
+        while (i < s.length()) {
+            int index = node.find(s.charAt(i));
+            if (index < 0 || !s.startsWith(node.children[index].edge, i)) {
+                break;
+            }
+            node = node.children[index];
+            i += node.edge.length();
+            if (node.entry != null) {
+                longest = i;
+            }
+        }
+        return longest == -1 ? null : s.substring(0, longest);
+    }
+
+    /**
+     * This function finds the node at the top of the subtree holding the labels with a prefix.
+     * The prefix may end part way along the node's edge.
+     *
+     * @param prefix the prefix to look for
+     * @return the node, or null if no label starts with the prefix
+     */
+    private Node locate(String prefix) {
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = node.find(prefix.charAt(i));
+            if (index < 0) {
+                return null;
+            }
+            node = node.children[index];
+            int common = commonLength(node.edge, prefix, i);
+            if (common < node.edge.length() && i + common < prefix.length()) {
+                return null; // The prefix leaves the edge part way
+            }
+            i += node.edge.length();
+        }
+        return node;
+    }
+
+    /**
+     * This function adds the labels of a subtree to a list, in increasing order.
+     *
+     * @param node the root of the subtree
+     * @param labels the list receiving the labels
+     */
+    private static void collect(Node node, List<String> labels) {
+        if (node.entry != null) {
+            labels.add(node.entry.label);
+        }
+        for (Node child : node.children) {
+            collect(child, labels);
+        }
+    }
+
+    /**
+     * This function counts a look-up of a label, raising its rank among the popular labels of
+     * every node above it.
+     *
+     * @param label the label that was looked up
+     * @return true if the label is in the trie
+     * @return false otherwise
+     */
+    public boolean access(String label) {
+        return access(label, 1);
+    }
+
+    /**
+     * This function counts several look-ups of a label at once, as when a trie is rebuilt from
+     * records that were already looked up.
+     *
+     * @param label the label that was looked up
+     * @param times the number of look-ups
+     * @return true if the label is in the trie
+     * @return false otherwise
+     */
+    public boolean access(String label, long times) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        path.add(node);
+        while (i < label.length()) {
+            int index = node.find(label.charAt(i));
+            if (index < 0 || !label.startsWith(node.children[index].edge, i)) {
+                return false;
+            }
+            node = node.children[index];
+            i += node.edge.length();
+            path.add(node);
+        }
+        if (node.entry == null) {
+            return false;
+        }
+        node.entry.popularity += times;
+        for (Node u : path) {
+            offer(u, node.entry);
+        }
+        return true;
+    }
+
+    /**
+     * This function returns the most popular labels that start with the given prefix, most popular
+     * first and labels looked up equally often in increasing order. When k is at most the number
+     * of labels kept per node, only the nodes on the path of the prefix are visited. A larger k is
+     * answered by ranking every label below the prefix, which takes time in the size of its subtree.
+     *
+     * @param prefix the prefix of the labels
+     * @param k the number of labels wanted
+     * @return up to k labels with the prefix
+     */
+    public List<String> mostPopular(String prefix, int k) {
+        List<String> labels = new ArrayList<>();
+        Node node = locate(prefix);
+        if (node == null) {
+            return labels;
+        }
+        Entry[] ranked = node.top;
+        if (k > topSize && node.labels > ranked.length) {
+            List<Entry> entries = new ArrayList<>(node.labels);
+            collectEntries(node, entries);
+            entries.sort((a, b) -> a.before(b) ? -1 : b.before(a) ? 1 : 0);
+            ranked = entries.toArray(NO_ENTRIES);
+        }
+        int i = 0;
+        while (i < Math.min(k, ranked.length)) {
+            labels.add(ranked[i].label);
+            i++;
+        }
+        return labels;
+    }
+
+    /**
+     * This function adds the entries of every label of a subtree to a list.
+     *
+     * @param node the root of the subtree
+     * @param entries the list receiving the entries
+     */
+    private static void collectEntries(Node node, List<Entry> entries) {
+        if (node.entry != null) {
+            entries.add(node.entry);
+        }
+        for (Node child : node.children) {
+            collectEntries(child, entries);
+        }
+    }
+
+    /**
+     * This function returns the number of times a label was looked up.
+     *
+     * @param label the label
+     * @return the popularity of the label, 0 if it is not in the trie
+     */
+    public long popularity(String label) {
+        Node node = locate(label);
+        return node == null || node.entry == null || !node.entry.label.equals(label) ? 0 : node.entry.popularity;
+    }
+
+    /**
+     * This function counts one more label on every node of a path and offers it to their lists of
+     * popular labels.
+     *
+     * @param path the nodes from the root down to the node where the label ends
+     * @param e the new label
+     */
+    private void countNewLabel(List<Node> path, Entry e) {
+        for (Node u : path) {
+            u.labels++;
+            offer(u, e);
+        }
+    }
+
+    /**
+     * This function places a label whose rank may have risen in the list of popular labels of a node.
+     *
+     * @param u the node
+     * @param e the label
+     */
+    private void offer(Node u, Entry e) {
+        int i = indexOf(u.top, e);
+        if (i < 0) {
+            if (u.top.length < topSize) {
+                u.top = Arrays.copyOf(u.top, u.top.length + 1);
+            } else if (topSize == 0 || !e.before(u.top[u.top.length - 1])) {
+                return; // Not popular enough for this node
+            }
+            i = u.top.length - 1;
+        }
+        while (i > 0 && e.before(u.top[i - 1])) {
+            u.top[i] = u.top[i - 1]; // Move the label up past the less popular ones
+            i--;
+        }
+        u.top[i] = e;
+    }
+
+    /**
+     * This function rebuilds the list of popular labels of a node from its own label and the lists
+     * of its children, which must already be correct.
+     *
+     * @param u the node
+     */
+    private void rebuildTop(Node u) {
+        u.top = NO_ENTRIES;
+        if (u.entry != null) {
+            offer(u, u.entry);
+        }
+        for (Node child : u.children) {
+            for (Entry e : child.top) {
+                offer(u, e);
+            }
+        }
+    }
+
+    /**
+     * This function finds a label in a list of popular labels.
+     *
+     * @param top the list
+     * @param e the label
+     * @return the index of the label, or -1 if it is not in the list
+     */
+    private static int indexOf(Entry[] top, Entry e) {
+        int i = 0;
+        while (i < top.length) {
+            if (top[i] == e) {
+                return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * This function returns the length of the common prefix of an edge and a label read from a position.
+     *
+     * @param edge the characters of the edge
+     * @param label the label
+     * @param from the position in the label to compare from
+     * @return the number of characters the edge and the label have in common
+     */
+    private static int commonLength(String edge, String label, int from) {
+        int n = Math.min(edge.length(), label.length() - from);
+        int i = 0;
+        while (i < n && edge.charAt(i) == label.charAt(from + i)) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -7,6 +7,7 @@
 public class Record {
     private Key theKey;
     private String data;
+    private int accesses; // The number of times the record was looked up by a user
 
     /**
      * This function initializes a new Record object with the specified key and data.
@@ -36,4 +37,20 @@ public class Record {
     public String getDataItem() {
         return data;
     }
+
+    /**
+     * This function returns the number of times the record was looked up.
+     *
+     * @return the access count of the record
+     */
+    public int getAccessCount() {
+        return accesses;
+    }
+
+    /**
+     * This function counts one more look-up of the record.
+     */
+    public void recordAccess() {
+        accesses++;
+    }
 }
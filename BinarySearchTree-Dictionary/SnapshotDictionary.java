@@ -0,0 +1,589 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * SnapshotDictionary.java
+ * Ali Ajwani
+ *
+ * This class represents a read-only dictionary stored in a binary snapshot file. The file is
+ * memory-mapped when it is opened and queried in place, so opening it costs the same for any
+ * number of records; records are only built when they are returned.
+ *
+ * The snapshot holds the records in increasing order of their keys, in five sections:
+ *   - the header: a magic number, the version, the number of records, the number of labels per
+ *     block and the offsets of the other sections (8 bytes each),
+ *   - the types, one byte per record,
+ *   - the block index, the offset of every block of labels within the labels section (4 bytes each),
+ *   - the labels, front-coded in blocks: every label is stored as the number of bytes it shares with
+ *     the previous label, the number of bytes that follow and those bytes, and the first label of
+ *     a block shares nothing, so a block can be decoded on its own,
+ *   - the data, one UTF-8 string after the other, followed by the data index, the offset of every
+ *     data string within the data section plus the end of the last one (4 bytes each).
+ * Lengths are written as variable-length integers of 7 bits per byte. A key is found with a binary
+ * search over the first labels of the blocks followed by a scan of one block. A snapshot is mapped
+ * as a single buffer, so it cannot be larger than 2 GB.
+ */
+public class SnapshotDictionary implements BSTDictionaryADT {
+    public static final int MAGIC = 0x42535444; // "BSTD", the first bytes of every snapshot
+    public static final int VERSION = 1; // The version of the snapshot format
+    public static final int BLOCK_SIZE = 16; // The number of labels in a front-coded block
+    private static final int HEADER_SIZE = 56; // The size of the header in bytes
+
+    private MappedByteBuffer buffer; // The mapped snapshot
+    private int count; // The number of records
+    private int blockSize; // The number of labels per block
+    private int blocks; // The number of blocks of labels
+    private int types; // The offset of the types
+    private int blockIndex; // The offset of the block index
+    private int labels; // The offset of the labels
+    private int data; // The offset of the data
+    private int dataIndex; // The offset of the data index
+
+    /**
+     * This function opens a snapshot file for querying.
+     *
+     * @param fileName the name of the snapshot file
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public SnapshotDictionary(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("The snapshot is too large to be mapped");
+            }
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a dictionary snapshot: " + fileName);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // The mapping outlives the channel
+        }
+        if (!validHeader(buffer, buffer.limit())) {
+            throw new IOException("Not a dictionary snapshot: " + fileName);
+        }
+        count = buffer.getInt(8);
+        blockSize = buffer.getInt(12);
+        blocks = (count + blockSize - 1) / blockSize;
+        types = (int) buffer.getLong(16);
+        blockIndex = (int) buffer.getLong(24);
+        labels = (int) buffer.getLong(32);
+        data = (int) buffer.getLong(40);
+        dataIndex = (int) buffer.getLong(48);
+    }
+
+    /**
+     * This function checks whether a file is a snapshot. Only the header is read, but it has to
+     * describe sections that exactly fill the file, so a text file that happens to start with the
+     * bytes of the magic number is not taken for a snapshot.
+     *
+     * @param fileName the name of the file
+     * @return true if the file has a valid snapshot header
+     * @return false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public static boolean isSnapshot(String fileName) throws IOException {
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) != -1) {
+                // Keep reading until the header is complete or the file ends
+            }
+            return !header.hasRemaining() && validHeader(header, size);
+        }
+    }
+
+    /**
+     * This function checks that a header has the magic number and version of snapshots and that
+     * the sections it describes follow each other as write lays them out and end with the file.
+     *
+     * @param header the header, at the start of the buffer
+     * @param fileSize the size of the file in bytes
+     * @return true if the header is valid
+     * @return false otherwise
+     */
+    private static boolean validHeader(ByteBuffer header, long fileSize) {
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            return false;
+        }
+        long n = header.getInt(8);
+        long size = header.getInt(12);
+        if (n < 0 || size < 1) {
+            return false;
+        }
+        long blockCount = (n + size - 1) / size;
+        long typesOffset = header.getLong(16);
+        long blockIndexOffset = header.getLong(24);
+        long labelsOffset = header.getLong(32);
+        long dataOffset = header.getLong(40);
+        long dataIndexOffset = header.getLong(48);
+        return typesOffset == HEADER_SIZE
+                && blockIndexOffset == typesOffset + n
+                && labelsOffset == blockIndexOffset + 4 * blockCount
+                && dataOffset >= labelsOffset
+                && dataIndexOffset >= dataOffset
+                && dataIndexOffset + 4 * (n + 1) == fileSize;
+    }
+
+    /**
+     * This function writes the records of a dictionary to a snapshot file.
+     *
+     * @param dictionary the dictionary to save
+     * @param fileName the name of the snapshot file, replaced if it exists
+     * @throws IOException if an I/O error occurs or the snapshot would be larger than 2 GB
+     * @throws IllegalArgumentException if a record has a type that does not fit in a byte
+     */
+    public static void write(BSTDictionaryADT dictionary, String fileName) throws IOException {
+        List<Record> records = new ArrayList<>();
+        Iterator<Record> it = dictionary.iterator();
+        while (it.hasNext()) {
+            records.add(it.next());
+        }
+        int n = records.size();
+        int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+
+        // Front-code the labels in memory, since the block index that precedes them needs their offsets
+        ByteArrayOutputStream labelBytes = new ByteArrayOutputStream();
+        int[] blockOffsets = new int[blocks];
+        byte[] previous = new byte[0];
+        int i = 0;
+        while (i < n) {
+            byte[] label = records.get(i).getKey().getLabel().getBytes(StandardCharsets.UTF_8);
+            int shared = 0;
+            if (i % BLOCK_SIZE == 0) {
+                blockOffsets[i / BLOCK_SIZE] = labelBytes.size();
+            } else {
+                while (shared < label.length && shared < previous.length && label[shared] == previous[shared]) {
+                    shared++;
+                }
+            }
+            writeVarInt(labelBytes, shared);
+            writeVarInt(labelBytes, label.length - shared);
+            labelBytes.write(label, shared, label.length - shared);
+            previous = label;
+            i++;
+        }
+
+        long typesOffset = HEADER_SIZE;
+        long blockIndexOffset = typesOffset + n;
+        long labelsOffset = blockIndexOffset + 4L * blocks;
+        long dataOffset = labelsOffset + labelBytes.size();
+        long[] dataOffsets = new long[n + 1];
+
+        try (FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.write(new byte[HEADER_SIZE]); // Filled in once the size of the data is known
+            for (Record record : records) {
+                int type = record.getKey().getType();
+                if (type < 0 || type > 255) {
+                    throw new IllegalArgumentException("The type " + type + " does not fit in a snapshot");
+                }
+                out.writeByte(type);
+            }
+            for (int offset : blockOffsets) {
+                out.writeInt(offset);
+            }
+            labelBytes.writeTo(out);
+            i = 0;
+            while (i < n) {
+                byte[] bytes = records.get(i).getDataItem().getBytes(StandardCharsets.UTF_8);
+                out.write(bytes);
+                dataOffsets[i + 1] = dataOffsets[i] + bytes.length;
+                i++;
+            }
+            long end = dataOffset + dataOffsets[n] + 4L * (n + 1);
+            if (end > Integer.MAX_VALUE) {
+                throw new IOException("The dictionary is too large for a snapshot");
+            }
+            for (long offset : dataOffsets) {
+                out.writeInt((int) offset);
+            }
+            out.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(BLOCK_SIZE);
+            header.putLong(typesOffset).putLong(blockIndexOffset).putLong(labelsOffset);
+            header.putLong(dataOffset).putLong(dataOffset + dataOffsets[n]);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * This function writes a non-negative integer with 7 bits per byte, lowest bits first.
+     *
+     * @param out the stream to write to
+     * @param value the integer to write
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * This function returns the number of records in the snapshot.
+     *
+     * @return the number of records
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * This function retrieves the record associated with the specified key.
+     *
+     * @param k the key of the record to retrieve
+     * @return the record associated with the key, or null if the key is not found
+     */
+    @Override
+    public Record get(Key k) {
+        Cursor cursor = seek(k);
+        return cursor.index < count && cursor.compareTo(k) == 0 ? cursor.record() : null;
+    }
+
+    /**
+     * This function always fails, since a snapshot cannot be changed.
+     *
+     * @param d the record to insert
+     * @throws DictionaryException always
+     */
+    @Override
+    public void put(Record d) throws DictionaryException {
+        throw new DictionaryException("The snapshot is read-only");
+    }
+
+    /**
+     * This function always fails, since a snapshot cannot be changed.
+     *
+     * @param k the key of the record to remove
+     * @throws DictionaryException always
+     */
+    @Override
+    public void remove(Key k) throws DictionaryException {
+        throw new DictionaryException("The snapshot is read-only");
+    }
+
+    /**
+     * This function finds the record with the smallest key larger than the specified key.
+     *
+     * @param k the key to find the successor for, which does not need to be in the snapshot
+     * @return the successor record, or null if there is none
+     */
+    @Override
+    public Record successor(Key k) {
+        Cursor cursor = seek(k);
+        if (cursor.index < count && cursor.compareTo(k) == 0) {
+            cursor.advance();
+        }
+        return cursor.index < count ? cursor.record() : null;
+    }
+
+    /**
+     * This function finds the record with the largest key smaller than the specified key.
+     *
+     * @param k the key to find the predecessor for, which does not need to be in the snapshot
+     * @return the predecessor record, or null if there is none
+     */
+    @Override
+    public Record predecessor(Key k) {
+        int index = seek(k).index - 1;
+        return index < 0 ? null : at(index).record();
+    }
+
+    /**
+     * This function returns the record with the smallest key.
+     *
+     * @return the smallest record, or null if the snapshot is empty
+     */
+    @Override
+    public Record smallest() {
+        return count == 0 ? null : at(0).record();
+    }
+
+    /**
+     * This function returns the record with the largest key.
+     *
+     * @return the largest record, or null if the snapshot is empty
+     */
+    @Override
+    public Record largest() {
+        return count == 0 ? null : at(count - 1).record();
+    }
+
+    /**
+     * This function returns an iterator over all the records in increasing order of their keys.
+     *
+     * @return an iterator starting at the smallest record
+     */
+    @Override
+    public Iterator<Record> iterator() {
+        return new SnapshotIterator(at(0), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are larger than or equal to
+     * the specified key, in increasing order.
+     *
+     * @param fromKey the key to start from, which does not need to be in the snapshot
+     * @return an iterator starting at the first record with a key of at least fromKey
+     */
+    @Override
+    public Iterator<Record> iterator(Key fromKey) {
+        return new SnapshotIterator(seek(fromKey), null, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose keys are in the given range.
+     *
+     * @param fromKey the smallest key of the range (inclusive)
+     * @param toKey the key ending the range (exclusive)
+     * @return an iterator over the records in the range
+     */
+    @Override
+    public Iterator<Record> rangeScan(Key fromKey, Key toKey) {
+        return new SnapshotIterator(seek(fromKey), toKey, null);
+    }
+
+    /**
+     * This function returns an iterator over the records whose labels start with the given prefix.
+     *
+     * @param prefix the prefix of the labels
+     * @return an iterator over the records whose labels start with the prefix
+     */
+    @Override
+    public Iterator<Record> prefixScan(String prefix) {
+        Key start = new Key(prefix, Integer.MIN_VALUE);
+        return new SnapshotIterator(seek(start), null, start.getLabel());
+    }
+
+    /**
+     * This function places a cursor on the first record whose key is larger than or equal to the
+     * specified key. A binary search over the first labels of the blocks finds the block, and the
+     * block is then decoded up to the record.
+     *
+     * @param k the key to seek
+     * @return a cursor on the first record with a key of at least k, or past the last record
+     */
+    private Cursor seek(Key k) {
+        // Find the last block whose first key is smaller than k
+        int low = 0;
+        int high = blocks - 1;
+        int block = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (at(middle * blockSize).compareTo(k) < 0) {
+                block = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        Cursor cursor = at(block * blockSize);
+        while (cursor.index < count && cursor.compareTo(k) < 0) {
+            cursor.advance();
+        }
+        return cursor;
+    }
+
+    /**
+     * This function places a cursor on a record by its position.
+     *
+     * @param index the position of the record, from 0 to the number of records
+     * @return a cursor on the record
+     */
+    private Cursor at(int index) {
+        Cursor cursor = new Cursor(index - index % blockSize);
+        while (cursor.index < index) {
+            cursor.advance();
+        }
+        return cursor;
+    }
+
+    /**
+     * This class decodes the front-coded labels one after the other, starting at a block.
+     */
+    private class Cursor {
+        private int index; // The position of the current record, or the number of records past the end
+        private int next; // The offset of the label after the current one
+        private byte[] label = new byte[32]; // The bytes of the current label
+        private int length; // The number of bytes of the current label
+        private String text; // The current label as a string, decoded when first needed
+
+        /**
+         * This function initializes a cursor on the first record of a block.
+         *
+         * @param first the position of the first record of the block
+         */
+        private Cursor(int first) {
+            index = first - 1;
+            if (first < count) {
+                next = labels + buffer.getInt(blockIndex + 4 * (first / blockSize));
+            }
+            advance();
+        }
+
+        /**
+         * This function moves the cursor to the next record.
+         */
+        private void advance() {
+            index++;
+            text = null;
+            if (index >= count) {
+                index = count;
+                return;
+            }
+            int shared = readVarInt();
+            int suffix = readVarInt();
+            if (label.length < shared + suffix) {
+                byte[] larger = new byte[Math.max(shared + suffix, 2 * label.length)];
+                System.arraycopy(label, 0, larger, 0, shared);
+                label = larger;
+            }
+            buffer.get(next, label, shared, suffix);
+            next += suffix;
+            length = shared + suffix;
+        }
+
+        /**
+         * This function reads a variable-length integer at the offset of the next label.
+         *
+         * @return the integer
+         */
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = buffer.get(next++);
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        /**
+         * This function returns the label of the current record.
+         *
+         * @return the label
+         */
+        private String label() {
+            if (text == null) {
+                text = new String(label, 0, length, StandardCharsets.UTF_8);
+            }
+            return text;
+        }
+
+        /**
+         * This function returns the type of the current record.
+         *
+         * @return the type
+         */
+        private int type() {
+            return buffer.get(types + index) & 0xFF;
+        }
+
+        /**
+         * This function compares the key of the current record with the specified key, in the order of Key.
+         *
+         * @param k the key to compare with
+         * @return a negative number, 0 or a positive number as the current key is smaller than, equal to or larger than k
+         */
+        private int compareTo(Key k) {
+            int c = label().compareTo(k.getLabel());
+            return c != 0 ? c : Integer.compare(type(), k.getType());
+        }
+
+        /**
+         * This function builds the current record from the snapshot.
+         *
+         * @return the record
+         */
+        private Record record() {
+            int from = buffer.getInt(dataIndex + 4 * index);
+            int to = buffer.getInt(dataIndex + 4 * (index + 1));
+            byte[] bytes = new byte[to - from];
+            buffer.get(data + from, bytes);
+            return new Record(new Key(label(), type()), new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * This class walks the records of the snapshot in increasing order of their keys, optionally
+     * stopping at an end key or at the first label without a prefix.
+     */
+    private class SnapshotIterator implements Iterator<Record> {
+        private Cursor cursor; // The cursor on the record returned next
+        private Key end; // The walk stops before the first key larger than or equal to this one, null for no limit
+        private String prefix; // The walk stops at the first label without this prefix, null for no limit
+        private boolean done; // Whether the walk is past its last record
+
+        /**
+         * This function initializes an iterator starting at a cursor.
+         *
+         * @param cursor the cursor on the first record to return
+         * @param end the key at which the walk stops (exclusive), or null
+         * @param prefix the prefix every returned label must start with, or null
+         */
+        private SnapshotIterator(Cursor cursor, Key end, String prefix) {
+            this.cursor = cursor;
+            this.end = end;
+            this.prefix = prefix;
+            limit();
+        }
+
+        /**
+         * This function checks if there are more records to return.
+         *
+         * @return true if there are more records
+         * @return false otherwise
+         */
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        /**
+         * This function returns the next record and moves to the one after it.
+         *
+         * @return the next record
+         * @throws NoSuchElementException if there are no more records
+         */
+        @Override
+        public Record next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            Record record = cursor.record();
+            cursor.advance();
+            limit();
+            return record;
+        }
+
+        /**
+         * This function checks the cursor against the limits of the walk.
+         */
+        private void limit() {
+            done = cursor.index >= count || (end != null && cursor.compareTo(end) >= 0)
+                    || (prefix != null && !cursor.label().startsWith(prefix));
+        }
+    }
+}
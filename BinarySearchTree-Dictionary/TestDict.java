@@ -1,4 +1,5 @@
 import java.io.*;
+import java.util.*;
 
 public class TestDict {
 
@@ -260,5 +261,345 @@ if (alltests || test == 16)
 	catch (IOException e) {
 	    System.out.println("Cannot open file: large.txt");
 	}
+
+	// Insert words in increasing order, remove every other one and use the balanced tree that is left
+	if (alltests || test == 17)
+	try {
+	    dictionary = new BSTDictionary();
+	    for (int i = 0; i < 2000; ++i)
+			dictionary.put(new Record(new Key(String.format("w%04d", i),TEXT),"d" + i));
+	    for (int i = 0; i < 2000; i += 2)
+			dictionary.remove(new Key(String.format("w%04d", i),TEXT));
+	    if (dictionary.get(new Key("w0998",TEXT)) == null
+		    && dictionary.get(new Key("w0999",TEXT)).getDataItem().equals("d999")
+		    && dictionary.successor(new Key("w0999",TEXT)).getKey().getLabel().equals("w1001")
+		    && dictionary.predecessor(new Key("w0999",TEXT)).getKey().getLabel().equals("w0997")
+		    && dictionary.smallest().getKey().getLabel().equals("w0001")
+		    && dictionary.largest().getKey().getLabel().equals("w1999")
+		    && updatesWork(new BSTDictionary(), records))
+			System.out.println("Test 17 passed");
+	    else System.out.println("Test 17 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 17 failed");
+	}
+
+	// Walk the records in order, from the start and from keys in and out of the dictionary
+	if (alltests || test == 18 || test == 19)
+	try {
+	    dictionary = new BSTDictionary();
+	    for (int i = 0; i < 5; ++i)
+			dictionary.put(records[i]);
+	    dictionary.put(new Record(new Key("course",1),"A direction of travel."));
+	    if (labels(dictionary.iterator()).equals("class computer course course four homework")
+		    && labels(dictionary.iterator(new Key("course",TEXT))).equals("course four homework")
+		    && labels(dictionary.iterator(new Key("a",TEXT))).equals("class computer course course four homework")
+		    && labels(dictionary.iterator(new Key("zebra",TEXT))).equals("")
+		    && labels(new BSTDictionary().iterator()).equals(""))
+			System.out.println("Test 18 passed");
+	    else System.out.println("Test 18 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 18 failed");
+	}
+
+	// Scan ranges of keys and labels with a prefix
+	if (alltests || test == 19)
+	try {
+	    if (labels(dictionary.rangeScan(new Key("computer",TEXT), new Key("four",TEXT))).equals("computer course course")
+		    && labels(dictionary.rangeScan(new Key("course",TEXT), new Key("homework",TEXT))).equals("course four")
+		    && labels(dictionary.rangeScan(new Key("four",TEXT), new Key("four",TEXT))).equals("")
+		    && labels(dictionary.rangeScan(new Key("homework",TEXT), new Key("class",TEXT))).equals("")
+		    && labels(dictionary.prefixScan("co")).equals("computer course course")
+		    && labels(dictionary.prefixScan("course")).equals("course course")
+		    && labels(dictionary.prefixScan("")).equals("class computer course course four homework")
+		    && labels(dictionary.prefixScan("cz")).equals(""))
+			System.out.println("Test 19 passed");
+	    else System.out.println("Test 19 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 19 failed");
+	}
+
+	// Count and list the labels with a prefix, and find the longest label a word starts with
+	if (alltests || test == 20)
+	try {
+	    BSTDictionary labelled = new BSTDictionary();
+	    for (int i = 0; i < 5; ++i)
+			labelled.put(records[i]);
+	    labelled.put(new Record(new Key("course",1),"A direction of travel."));
+	    labelled.put(new Record(new Key("courses",TEXT),"More than one course."));
+	    boolean test20 = labelled.countPrefix("co") == 3
+		    && labelled.countPrefix("Cour") == 2
+		    && labelled.countPrefix("cx") == 0
+		    && labelled.labelsWithPrefix("c").equals(Arrays.asList("class", "computer", "course", "courses"))
+		    && "course".equals(labelled.longestPrefixMatch("coursework"))
+		    && "courses".equals(labelled.longestPrefixMatch("courses"))
+		    && labelled.longestPrefixMatch("cour") == null;
+	    labelled.remove(new Key("course",1));
+	    test20 = test20 && labelled.countPrefix("course") == 2;
+	    labelled.remove(new Key("course",TEXT));
+	    test20 = test20 && labelled.countPrefix("course") == 1
+		    && "courses".equals(labelled.longestPrefixMatch("coursesx"))
+		    && labelled.longestPrefixMatch("coursework") == null;
+	    if (test20) System.out.println("Test 20 passed");
+	    else System.out.println("Test 20 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 20 failed");
+	}
+
+	// Rank the labels with a prefix by how often they were looked up, asking for more than the trie keeps
+	if (alltests || test == 21)
+	try {
+	    BSTDictionary popular = new BSTDictionary();
+	    for (int i = 0; i < 15; ++i)
+			popular.put(new Record(new Key(String.format("pop%02d", i),TEXT),"d" + i));
+	    for (int i = 0; i < 15; ++i)
+			for (int j = 0; j < i; ++j)
+				popular.lookup(new Key(String.format("pop%02d", i),TEXT));
+	    popular.lookup(new Key("pop03",TEXT));
+	    List<String> top = popular.mostPopular("pop", 3);
+	    List<String> all = popular.mostPopular("POP", 20);
+	    if (top.equals(Arrays.asList("pop14", "pop13", "pop12"))
+		    && all.size() == 15
+		    && all.subList(0, 3).equals(top)
+		    && all.subList(10, 15).equals(Arrays.asList("pop03", "pop04", "pop02", "pop01", "pop00"))
+		    && popular.mostPopular("pop1", 12).equals(Arrays.asList("pop14", "pop13", "pop12", "pop11", "pop10"))
+		    && popular.mostPopular("x", 12).isEmpty())
+			System.out.println("Test 21 passed");
+	    else System.out.println("Test 21 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 21 failed");
+	}
+
+	// Load records in any order at once, into an empty dictionary and into one that already has records
+	if (alltests || test == 22)
+	try {
+	    BSTDictionary bulk = new BSTDictionary();
+	    bulk.bulkLoad(new Record[] {records[3], records[0], records[4]});
+	    bulk.bulkLoad(new Record[] {records[2], records[1]});
+	    boolean test22 = queriesWork(bulk) && bulk.countPrefix("co") == 2;
+	    try {
+			bulk.bulkLoad(new Record[] {new Record(new Key("zeal",TEXT),"Eagerness."), records[2]});
+			test22 = false;
+	    }
+	    catch (DictionaryException e) {
+			test22 = test22 && bulk.get(new Key("zeal",TEXT)) == null;
+	    }
+	    if (test22) System.out.println("Test 22 passed");
+	    else System.out.println("Test 22 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 22 failed");
+	}
+
+	// Load a file with Windows and Unix line ends, split into chunks of every size up to the whole file
+	if (alltests || test == 23)
+	try {
+	    File file = File.createTempFile("loader", ".txt");
+	    file.deleteOnExit();
+	    String[] lines = {"caf\u00e9", "/un caf\u00e9", "Course", "A series of lessons.", "", "an empty label", "flower", "flower.jpg", "last"};
+	    Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+	    for (int i = 0; i < lines.length; ++i)
+			out.write(lines[i] + (i == lines.length - 1 ? "" : i % 2 == 0 ? "\r\n" : "\n"));
+	    out.close();
+	    boolean test23 = true;
+	    for (int chunkSize = 1; chunkSize <= file.length() + 1; ++chunkSize) {
+			Record[] loaded = new DictionaryLoader(chunkSize).load(file.getPath());
+			test23 = test23 && loaded.length == 4;
+			for (int i = 0; test23 && i < 4; ++i) {
+				Record expected = DictionaryLoader.toRecord(lines[2 * i], lines[2 * i + 1]);
+				test23 = loaded[i].getKey().compareTo(expected.getKey()) == 0
+					&& loaded[i].getDataItem().equals(expected.getDataItem());
+			}
+	    }
+	    if (test23 && new DictionaryLoader(7).load(file.getPath())[0].getDataItem().equals("un caf\u00e9"))
+			System.out.println("Test 23 passed");
+	    else System.out.println("Test 23 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 23 failed");
+	}
+
+	// Save a dictionary to a snapshot, open it and query it; files that only look like snapshots are refused
+	if (alltests || test == 24)
+	try {
+	    File file = File.createTempFile("snapshot", ".bin");
+	    file.deleteOnExit();
+	    BSTDictionary saved = new BSTDictionary();
+	    for (int i = 0; i < 5; ++i)
+			saved.put(records[i]);
+	    saved.save(file.getPath());
+	    SnapshotDictionary snapshot = new SnapshotDictionary(file.getPath());
+	    boolean test24 = SnapshotDictionary.isSnapshot(file.getPath())
+		    && snapshot.size() == 5
+		    && queriesWork(snapshot);
+	    try {
+			snapshot.put(new Record(new Key("zeal",TEXT),"Eagerness."));
+			test24 = false;
+	    }
+	    catch (DictionaryException e) {
+			// A snapshot cannot be changed
+	    }
+
+	    File text = File.createTempFile("notsnapshot", ".txt");
+	    text.deleteOnExit();
+	    Writer out = new FileWriter(text);
+	    out.write("BSTD is not a snapshot\nbut it starts like one, and is long enough to hold a header\n");
+	    out.close();
+	    test24 = test24 && !SnapshotDictionary.isSnapshot(text.getPath());
+	    try {
+			new SnapshotDictionary(text.getPath());
+			test24 = false;
+	    }
+	    catch (IOException e) {
+			// Not a snapshot
+	    }
+	    if (test24) System.out.println("Test 24 passed");
+	    else System.out.println("Test 24 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 24 failed");
+	}
+
+	// Freeze a dictionary, change it through the delta and merge the changes into new arrays
+	if (alltests || test == 25)
+	try {
+	    BSTDictionary source = new BSTDictionary();
+	    for (int i = 0; i < 5; ++i)
+			source.put(records[i]);
+	    FrozenDictionary frozen = new FrozenDictionary(source);
+	    boolean test25 = queriesWork(frozen) && updatesWork(new FrozenDictionary(), records);
+	    frozen.remove(keys[1]);
+	    frozen.put(new Record(new Key("cat",TEXT),"A small animal."));
+	    test25 = test25 && labels(frozen.iterator()).equals("cat class computer four homework")
+		    && frozen.successor(keys[3]).getKey().getLabel().equals("four");
+	    frozen.merge();
+	    frozen.remove(new Key("cat",TEXT));
+	    frozen.put(records[1]);
+	    test25 = test25 && queriesWork(frozen);
+	    frozen.merge();
+	    if (test25 && queriesWork(frozen)) System.out.println("Test 25 passed");
+	    else System.out.println("Test 25 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 25 failed");
+	}
+
+	// Put and remove many records in the array-backed tree, which reuses the slots of removed nodes
+	if (alltests || test == 26)
+	try {
+	    CompactDictionary compact = new CompactDictionary();
+	    boolean test26 = updatesWork(compact, records) && compact.size() == 5;
+	    for (int i = 0; i < 3000; ++i)
+			compact.put(new Record(new Key(String.format("x%04d", (i * 7) % 3000),TEXT),"d" + i));
+	    for (int i = 0; i < 3000; ++i)
+			compact.remove(new Key(String.format("x%04d", i),TEXT));
+	    test26 = test26 && compact.size() == 5 && queriesWork(compact);
+	    for (int i = 0; i < 100; ++i)
+			compact.put(new Record(new Key(String.format("x%04d", i),TEXT),"d" + i));
+	    if (test26 && compact.size() == 105
+		    && compact.get(new Key("x0042",TEXT)).getDataItem().equals("d42")
+		    && labels(compact.iterator(new Key("x0098",TEXT))).equals("x0098 x0099"))
+			System.out.println("Test 26 passed");
+	    else System.out.println("Test 26 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 26 failed");
+	}
+
+	// Change the persistent tree while iterators and other threads read older versions of it
+	if (alltests || test == 27)
+	try {
+	    final PersistentDictionary persistent = new PersistentDictionary();
+	    boolean test27 = updatesWork(persistent, records);
+	    Iterator<Record> before = persistent.iterator();
+	    persistent.remove(keys[0]);
+	    persistent.put(new Record(new Key("cat",TEXT),"A small animal."));
+	    test27 = test27 && labels(before).equals("class computer course four homework")
+		    && labels(persistent.iterator()).equals("cat class computer course four");
+
+	    final boolean[] consistent = {true};
+	    Thread reader = new Thread(() -> {
+		    for (int i = 0; i < 2000; ++i) {
+				int count = 0;
+				Iterator<Record> all = persistent.iterator();
+				while (all.hasNext()) {
+					all.next();
+					++count;
+				}
+				if (count != 5 && count != 6) consistent[0] = false;
+		    }
+	    });
+	    reader.start();
+	    for (int i = 0; i < 2000; ++i) {
+			persistent.put(new Record(new Key("dog",TEXT),"A loyal animal."));
+			persistent.remove(new Key("dog",TEXT));
+	    }
+	    reader.join();
+	    if (test27 && consistent[0]) System.out.println("Test 27 passed");
+	    else System.out.println("Test 27 failed");
+	}
+	catch (Exception e) {
+	    System.out.println("Test 27 failed");
+	}
+    }
+
+    private static final int TEXT = 2;
+
+    /* Puts the five records of the first tests into an empty dictionary, checks that a key
+       cannot be inserted twice nor removed twice, and then checks the queries */
+    private static boolean updatesWork(BSTDictionaryADT dictionary, Record[] records) throws DictionaryException {
+	for (Record record : records)
+		dictionary.put(record);
+	try {
+	    dictionary.put(records[0]);
+	    return false;
+	}
+	catch (DictionaryException e) {
+	    // The key is already in the dictionary
+	}
+	dictionary.remove(records[4].getKey());
+	if (dictionary.get(records[4].getKey()) != null)
+		return false;
+	try {
+	    dictionary.remove(records[4].getKey());
+	    return false;
+	}
+	catch (DictionaryException e) {
+	    // The key was already removed
+	}
+	dictionary.put(records[4]);
+	return queriesWork(dictionary);
+    }
+
+    /* Checks every query of a dictionary holding the five records of the first tests */
+    private static boolean queriesWork(BSTDictionaryADT dictionary) {
+	return dictionary.get(new Key("course",TEXT)).getDataItem().startsWith("A series")
+	    && dictionary.get(new Key("course",1)) == null
+	    && dictionary.successor(new Key("class",TEXT)).getKey().getLabel().equals("computer")
+	    && dictionary.predecessor(new Key("four",TEXT)).getKey().getLabel().equals("course")
+	    && dictionary.successor(new Key("homework",TEXT)) == null
+	    && dictionary.predecessor(new Key("class",TEXT)) == null
+	    && dictionary.smallest().getKey().getLabel().equals("class")
+	    && dictionary.largest().getKey().getLabel().equals("homework")
+	    && labels(dictionary.iterator()).equals("class computer course four homework")
+	    && labels(dictionary.iterator(new Key("cp",TEXT))).equals("four homework")
+	    && labels(dictionary.rangeScan(new Key("computer",TEXT), new Key("four",TEXT))).equals("computer course")
+	    && labels(dictionary.prefixScan("co")).equals("computer course")
+	    && labels(dictionary.prefixScan("z")).equals("");
+    }
+
+    /* Returns the labels of the records of an iterator, separated by spaces */
+    private static String labels(Iterator<Record> records) {
+	StringBuilder labels = new StringBuilder();
+	while (records.hasNext()) {
+	    if (labels.length() > 0)
+			labels.append(' ');
+	    labels.append(records.next().getKey().getLabel());
+	}
+	return labels.toString();
     }
 }
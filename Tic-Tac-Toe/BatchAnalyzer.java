@@ -0,0 +1,181 @@
+/**
+ * BatchAnalyzer.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class scores a file of positions, one board per line in the format of
+ * Configurations.boardToString, and writes one result line per position:
+ *   row col score nodes
+ * where row and col are the best play for the player to move, score is the search score
+ * (3 if O wins, 0 if X wins, 2 for a draw, 1 otherwise) and nodes is the number of boards visited.
+ * Positions that are already decided are reported with "- -" as the play and 0 nodes, and lines
+ * that are not boards are reported with "ERROR" and the reason.
+ *
+ * The positions are analysed by a pool of threads. The reader hands every position to the pool
+ * and queues its pending result in a bounded queue, so it blocks when too many positions are in
+ * flight; a writer thread takes the results off the queue in input order and writes each one as
+ * soon as it is ready. If the writer fails, the reader stops instead of waiting for room in the
+ * queue, and the program exits with status 1.
+ */
+public class BatchAnalyzer {
+    private final int lengthToWin; // The number of consecutive symbols needed to win
+    private final int depth; // The maximum level of the game tree that will be explored
+
+    /**
+     * This function constructs an analyzer for the given game settings.
+     *
+     * @param lengthToWin the number of consecutive symbols needed to win
+     * @param depth       the maximum level of the game tree that will be explored
+     */
+    public BatchAnalyzer(int lengthToWin, int depth) {
+        this.lengthToWin = lengthToWin;
+        this.depth = depth;
+    }
+
+    /* To run the program type: java BatchAnalyzer input-file output-file length depth [threads] */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4 || args.length > 5) {
+            System.out.println("Usage: java BatchAnalyzer input-file output-file shape-length depth [threads]");
+            System.exit(0);
+        }
+        int threads = args.length == 5 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        BatchAnalyzer analyzer = new BatchAnalyzer(Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        try {
+            analyzer.analyze(args[0], args[1], threads);
+        } catch (IOException e) {
+            System.err.println("Analysis failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * This function analyses every position of the input file and writes the results, in input
+     * order, to the output file.
+     *
+     * @param inputFile  the name of the file with one board per line
+     * @param outputFile the name of the file to write the results to
+     * @param threads    the number of threads analysing positions
+     * @throws IOException if a file cannot be read or written, or the writer fails
+     * @throws InterruptedException if the analysis is interrupted
+     */
+    public void analyze(String inputFile, String outputFile, int threads) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(threads * 4); // Bounds the positions in flight
+        Future<String> endOfInput = CompletableFuture.completedFuture(null);
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile));
+             BufferedWriter writer = new BufferedWriter(new FileWriter(outputFile))) {
+            IOException[] writeError = new IOException[1];
+            Thread writerThread = new Thread(() -> {
+                try {
+                    Future<String> result;
+                    while ((result = pending.take()) != endOfInput) {
+                        writer.write(result.get());
+                        writer.newLine();
+                    }
+                } catch (IOException e) {
+                    writeError[0] = e;
+                } catch (InterruptedException | ExecutionException e) {
+                    writeError[0] = new IOException(e);
+                }
+            });
+            writerThread.start();
+
+            String line;
+            boolean queued = true; // Whether the writer is still taking results
+            while (queued && (line = reader.readLine()) != null) {
+                String config = line;
+                queued = enqueue(pending, pool.submit(() -> safeAnalyzePosition(config)), writerThread);
+            }
+            if (queued) {
+                enqueue(pending, endOfInput, writerThread);
+            }
+            writerThread.join();
+            if (writeError[0] != null) {
+                throw writeError[0];
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * This function queues a pending result for the writer, waiting for room in the queue only as
+     * long as the writer is running, since a writer that has stopped never makes room.
+     *
+     * @param pending the queue of pending results
+     * @param result  the pending result to queue
+     * @param writer  the thread writing the results
+     * @return true if the result was queued, false if the writer stopped first
+     * @throws InterruptedException if the wait is interrupted
+     */
+    private static boolean enqueue(BlockingQueue<Future<String>> pending, Future<String> result, Thread writer)
+            throws InterruptedException {
+        while (!pending.offer(result, 100, TimeUnit.MILLISECONDS)) {
+            if (!writer.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This function analyses one position, turning any failure into an error line, so that one bad
+     * position cannot stop the writer.
+     *
+     * @param config the board, in the format of Configurations.boardToString
+     * @return the result line for the position
+     */
+    private String safeAnalyzePosition(String config) {
+        try {
+            return analyzePosition(config);
+        } catch (RuntimeException e) {
+            return "ERROR " + e.getMessage();
+        }
+    }
+
+    /**
+     * This function analyses one position and returns its result line.
+     *
+     * @param config the board, in the format of Configurations.boardToString
+     * @return the result line for the position
+     */
+    public String analyzePosition(String config) {
+        int size = (int) Math.round(Math.sqrt(config.length()));
+        if (size == 0 || size * size != config.length() || lengthToWin > size) {
+            return "ERROR invalid board";
+        }
+        int i = 0;
+        while (i < config.length()) {
+            if (BoardKey.code(config.charAt(i)) == -1) {
+                return "ERROR invalid board";
+            }
+            i++;
+        }
+        Configurations configs = new Configurations(size, lengthToWin, depth);
+        configs.loadBoard(config);
+        if (configs.evalBoard() != 1) {
+            return "- - " + configs.evalBoard() + " 0";
+        }
+
+        Search search = new Search(configs, size, depth);
+        PosPlay pos = search.computerPlay(configs.nextPlayer());
+        return pos.getRow() + " " + pos.getCol() + " " + pos.getScore() + " " + search.getNodeCount();
+    }
+}
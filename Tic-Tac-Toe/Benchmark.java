@@ -0,0 +1,239 @@
+/**
+ * Benchmark.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * This class runs the search over a fixed corpus of reference positions and compares the results
+ * with the baselines recorded in the corpus, so that changes to the search come with before/after
+ * numbers. Each line of the corpus holds, separated by '|':
+ *   size|length|depth|board|row|col|score|nodes|hit-rate|millis
+ * where board is in the format of Configurations.boardToString and the remaining fields are the
+ * recorded best play, score, number of boards visited, dictionary hit rate and search time.
+ * Lines starting with '#' are comments.
+ *
+ * A position fails when its score changes, when it visits more boards than the node threshold
+ * allows or when it takes longer than the time threshold allows. Wall times depend on the machine,
+ * so the baselines should be recorded (with -record) on the machine that runs the suite.
+ */
+public class Benchmark {
+    private static final double DEFAULT_NODE_THRESHOLD = 0.10; // Allowed growth of the number of boards visited
+    private static final double DEFAULT_TIME_THRESHOLD = 0.50; // Allowed growth of the search time
+    private static final long TIME_SLACK_MILLIS = 10; // Time differences this small are never a regression
+    private static final int RUNS = 5; // The number of timed runs per position; the fastest counts
+
+    /* To run the suite type: java Benchmark [corpus-file] [-record] [-nodes fraction] [-time fraction] */
+    public static void main(String[] args) throws IOException {
+        String corpus = "benchmark.txt";
+        boolean record = false;
+        double nodeThreshold = DEFAULT_NODE_THRESHOLD;
+        double timeThreshold = DEFAULT_TIME_THRESHOLD;
+
+        int i = 0;
+        while (i < args.length) {
+            switch (args[i]) {
+                case "-record": record = true; break;
+                case "-nodes": nodeThreshold = Double.parseDouble(args[++i]); break;
+                case "-time": timeThreshold = Double.parseDouble(args[++i]); break;
+                default: corpus = args[i]; break;
+            }
+            i++;
+        }
+
+        List<Entry> entries = readCorpus(corpus);
+        for (Entry entry : entries) {
+            entry.run(); // Warm up the JIT so the timed runs do not include compilation
+        }
+        int failures = 0;
+        for (Entry entry : entries) {
+            Entry result = entry.run();
+            if (record) {
+                System.out.println(result.format());
+                entry.copyFrom(result);
+            } else {
+                failures += report(entry, result, nodeThreshold, timeThreshold);
+            }
+        }
+
+        if (record) {
+            writeCorpus(corpus, entries);
+            System.out.println("Recorded " + entries.size() + " positions in " + corpus);
+        } else {
+            System.out.println(failures == 0 ? "All " + entries.size() + " positions passed"
+                    : failures + " of " + entries.size() + " positions regressed");
+            System.exit(failures == 0 ? 0 : 1);
+        }
+    }
+
+    /**
+     * This function prints the comparison of one position with its baseline.
+     *
+     * @param baseline      the recorded position
+     * @param result        the measured position
+     * @param nodeThreshold the allowed growth of the number of boards visited
+     * @param timeThreshold the allowed growth of the search time
+     * @return 1 if the position regressed, 0 otherwise
+     */
+    private static int report(Entry baseline, Entry result, double nodeThreshold, double timeThreshold) {
+        List<String> problems = new ArrayList<>();
+        if (result.score != baseline.score) {
+            problems.add("score " + baseline.score + " -> " + result.score);
+        }
+        if (result.nodes > baseline.nodes * (1 + nodeThreshold)) {
+            problems.add("nodes " + baseline.nodes + " -> " + result.nodes);
+        }
+        if (result.millis > baseline.millis * (1 + timeThreshold) && result.millis - baseline.millis > TIME_SLACK_MILLIS) {
+            problems.add("time " + baseline.millis + "ms -> " + result.millis + "ms");
+        }
+
+        String moved = (result.row != baseline.row || result.col != baseline.col)
+                ? " (play " + baseline.row + "," + baseline.col + " -> " + result.row + "," + result.col + ")" : "";
+        System.out.println(String.format(Locale.ROOT, "%s %dx%d/%d/%d nodes %d (%+.1f%%) hits %.3f time %dms (%dms)%s %s",
+                problems.isEmpty() ? "   ok" : "*FAIL", result.size, result.size, result.length, result.depth,
+                result.nodes, 100.0 * (result.nodes - baseline.nodes) / Math.max(1, baseline.nodes),
+                result.hitRate, result.millis, baseline.millis, moved, String.join(", ", problems)));
+        return problems.isEmpty() ? 0 : 1;
+    }
+
+    /**
+     * This function reads the positions of a corpus file, skipping comments and blank lines.
+     *
+     * @param fileName the name of the corpus file
+     * @return the positions of the corpus
+     * @throws IOException if the file cannot be read
+     */
+    private static List<Entry> readCorpus(String fileName) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                entries.add(Entry.parse(line));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * This function writes the positions back to a corpus file with a short header.
+     *
+     * @param fileName the name of the corpus file
+     * @param entries  the positions to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeCorpus(String fileName, List<Entry> entries) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(fileName))) {
+            writer.println("# Reference positions for Benchmark, recorded with: java Benchmark -record");
+            writer.println("# size|length|depth|board|row|col|score|nodes|hit-rate|millis");
+            for (Entry entry : entries) {
+                writer.println(entry.format());
+            }
+        }
+    }
+
+    /**
+     * This class represents one reference position together with its recorded or measured results.
+     */
+    private static class Entry {
+        private int size, length, depth; // The game settings
+        private String board; // The position, in the format of Configurations.boardToString
+        private int row, col, score; // The best play and its score
+        private long nodes; // The number of boards visited
+        private double hitRate; // The dictionary hit rate
+        private long millis; // The search time in milliseconds
+
+        /**
+         * This function parses one line of the corpus.
+         *
+         * @param line the line to parse
+         * @return the position described by the line
+         */
+        static Entry parse(String line) {
+            String[] fields = line.split("\\|", -1);
+            if (fields.length != 10) {
+                throw new IllegalArgumentException("Invalid corpus line: " + line);
+            }
+            Entry entry = new Entry();
+            entry.size = Integer.parseInt(fields[0]);
+            entry.length = Integer.parseInt(fields[1]);
+            entry.depth = Integer.parseInt(fields[2]);
+            entry.board = fields[3];
+            entry.row = Integer.parseInt(fields[4]);
+            entry.col = Integer.parseInt(fields[5]);
+            entry.score = Integer.parseInt(fields[6]);
+            entry.nodes = Long.parseLong(fields[7]);
+            entry.hitRate = Double.parseDouble(fields[8]);
+            entry.millis = Long.parseLong(fields[9]);
+            return entry;
+        }
+
+        /**
+         * This function searches the position and returns the measured results.
+         *
+         * @return a new entry holding the measured results
+         */
+        Entry run() {
+            Entry result = new Entry();
+            result.size = size;
+            result.length = length;
+            result.depth = depth;
+            result.board = board;
+            result.millis = Long.MAX_VALUE;
+
+            int i = 0;
+            while (i < RUNS) {
+                Configurations configs = new Configurations(size, length, depth);
+                configs.loadBoard(board);
+                Search search = new Search(configs, size, depth);
+                long start = System.nanoTime();
+                PosPlay pos = search.computerPlay(configs.nextPlayer());
+                long millis = (System.nanoTime() - start) / 1000000;
+
+                result.row = pos.getRow();
+                result.col = pos.getCol();
+                result.score = pos.getScore();
+                result.nodes = search.getNodeCount();
+                result.hitRate = search.getHitRate();
+                result.millis = Math.min(result.millis, millis);
+                i++;
+            }
+            return result;
+        }
+
+        /**
+         * This function replaces the recorded results with the given ones.
+         *
+         * @param other the entry holding the new results
+         */
+        void copyFrom(Entry other) {
+            row = other.row;
+            col = other.col;
+            score = other.score;
+            nodes = other.nodes;
+            hitRate = other.hitRate;
+            millis = other.millis;
+        }
+
+        /**
+         * This function formats the entry as a corpus line.
+         *
+         * @return the corpus line
+         */
+        String format() {
+            return String.format(Locale.ROOT, "%d|%d|%d|%s|%d|%d|%d|%d|%.4f|%d",
+                    size, length, depth, board, row, col, score, nodes, hitRate, millis);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+/**
+ * BoardKey.java
+ * Ali Ajwani
+ * October 27, 2024
+ *
+ * The BoardKey class represents a configuration packed into machine words, used as the key of the
+ * dictionaries. A board configuration (made of ' ', 'X' and 'O') uses 2 bits per square, so a board
+ * of up to 32 squares fits in a single long and larger boards use one more long per 32 squares.
+ * Any other string is packed with 16 bits per character, so dictionaries can still be keyed by
+ * arbitrary strings. Keys are compared and hashed a word at a time.
+ */
+public final class BoardKey {
+
+    /**
+     * The first word of the key.
+     */
+    private final long bits;
+
+    /**
+     * The remaining words of the key, or null when the key fits in one word.
+     */
+    private final long[] more;
+
+    /**
+     * The number of squares (or characters) in the key.
+     */
+    private final int length;
+
+    /**
+     * Whether the key is a board packed with 2 bits per square, rather than 16 bits per character.
+     */
+    private final boolean board;
+
+    /**
+     * The hash code of the key, computed once.
+     */
+    private final int hash;
+
+    /**
+     * The number of squares packed into one word.
+     */
+    public static final int SQUARES_PER_WORD = 32;
+
+    /**
+     * The number of characters packed into one word when the key is not a board.
+     */
+    public static final int CHARS_PER_WORD = 4;
+
+    /**
+     * The prime number used in the hash function of string keys.
+     */
+    private static final int PRIME_NUMBER = 39;
+
+    /**
+     * Constructs a key from its packed words.
+     *
+     * @param bits   the first word
+     * @param more   the remaining words, or null
+     * @param length the number of squares or characters
+     * @param board  whether the words hold a board with 2 bits per square
+     * @param hash   the hash code of the key
+     */
+    private BoardKey(long bits, long[] more, int length, boolean board, int hash) {
+        this.bits = bits;
+        this.more = more;
+        this.length = length;
+        this.board = board;
+        this.hash = hash;
+    }
+
+    /**
+     * Computes the hash code of a packed board a word at a time. It is the hash code of the key
+     * ofBoard(words, length) would create, so a board can be looked up without creating its key.
+     *
+     * @param words  the packed board, 2 bits per square
+     * @param length the number of squares
+     * @return the hash code
+     */
+    public static int boardHash(long[] words, int length) {
+        long h = (words.length == 0 ? 0 : words[0]) * 0x9E3779B97F4A7C15L + length;
+        int i = 1;
+        while (i < words.length) {
+            h = (h ^ words[i]) * 0x9E3779B97F4A7C15L;
+            i++;
+        }
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL; // Final mixing step of MurmurHash3
+        return (int) (h ^ (h >>> 33));
+    }
+
+    /**
+     * Computes the hash code of a key packed from a string, using the same polynomial as the
+     * string configurations did before they were packed, so string keys spread as they used to.
+     *
+     * @param words  the packed characters, 16 bits each
+     * @param length the number of characters
+     * @return the hash code
+     */
+    private static int stringHash(long[] words, int length) {
+        int h = 0;
+        int i = 0;
+        while (i < length) {
+            h = PRIME_NUMBER * h + (char) (words[i / CHARS_PER_WORD] >>> (16 * (i % CHARS_PER_WORD)));
+            i++;
+        }
+        return h;
+    }
+
+    /**
+     * Creates a board key from the words of a packed board, as kept by Configurations.
+     * The words are copied, so the caller may keep changing them.
+     *
+     * @param words  the packed board, 2 bits per square
+     * @param length the number of squares
+     * @return the key of the board
+     */
+    public static BoardKey ofBoard(long[] words, int length) {
+        return fromWords(words, length, true);
+    }
+
+    /**
+     * Creates a key from packed words, for example when reading a key back from a file.
+     * The words are copied.
+     *
+     * @param words  the packed words
+     * @param length the number of squares or characters
+     * @param board  whether the words hold a board with 2 bits per square
+     * @return the key
+     */
+    public static BoardKey fromWords(long[] words, int length, boolean board) {
+        long[] more = null;
+        if (words.length > 1) {
+            more = new long[words.length - 1];
+            System.arraycopy(words, 1, more, 0, more.length);
+        }
+        int hash = board ? boardHash(words, length) : stringHash(words, length);
+        return new BoardKey(words.length == 0 ? 0 : words[0], more, length, board, hash);
+    }
+
+    /**
+     * Creates the key of a configuration string. Strings made only of ' ', 'X' and 'O' are packed
+     * as boards; any other string is packed with 16 bits per character.
+     *
+     * @param config the configuration string
+     * @return the key of the configuration
+     */
+    public static BoardKey of(String config) {
+        boolean board = true;
+        int i = 0;
+        while (i < config.length() && board) {
+            board = code(config.charAt(i)) != -1;
+            i++;
+        }
+
+        long[] words = new long[wordCount(config.length(), board)];
+        i = 0;
+        while (i < config.length()) {
+            if (board) {
+                words[i / SQUARES_PER_WORD] |= (long) code(config.charAt(i)) << (2 * (i % SQUARES_PER_WORD));
+            } else {
+                words[i / CHARS_PER_WORD] |= (long) config.charAt(i) << (16 * (i % CHARS_PER_WORD));
+            }
+            i++;
+        }
+        return fromWords(words, config.length(), board);
+    }
+
+    /**
+     * Returns the 2-bit code of a square.
+     *
+     * @param square the symbol in the square
+     * @return 0 for an empty square, 1 for 'X', 2 for 'O' and -1 for any other character
+     */
+    public static int code(char square) {
+        switch (square) {
+            case ' ': return 0;
+            case 'X': return 1;
+            case 'O': return 2;
+            default: return -1;
+        }
+    }
+
+    /**
+     * Returns the number of words needed to pack a key.
+     *
+     * @param length the number of squares or characters
+     * @param board  whether the key is a board packed with 2 bits per square
+     * @return the number of words
+     */
+    public static int wordCount(int length, boolean board) {
+        int perWord = board ? SQUARES_PER_WORD : CHARS_PER_WORD;
+        return Math.max(1, (length + perWord - 1) / perWord);
+    }
+
+    /**
+     * Gets the number of squares or characters in the key.
+     *
+     * @return the length of the key
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Checks whether the key is a board packed with 2 bits per square.
+     *
+     * @return true for a board, false for a key packed with 16 bits per character
+     */
+    public boolean isBoard() {
+        return board;
+    }
+
+    /**
+     * Gets the number of words of the key.
+     *
+     * @return the number of words
+     */
+    public int words() {
+        return more == null ? 1 : more.length + 1;
+    }
+
+    /**
+     * Gets one word of the key.
+     *
+     * @param i the index of the word
+     * @return the word
+     */
+    public long word(int i) {
+        return i == 0 ? bits : more[i - 1];
+    }
+
+    /**
+     * Checks whether this key holds the given packed board, word by word.
+     *
+     * @param words  the packed board, 2 bits per square
+     * @param length the number of squares
+     * @return true if this key is the board made of those words
+     */
+    public boolean matches(long[] words, int length) {
+        if (!board || this.length != length || words.length != words() || bits != words[0]) {
+            return false;
+        }
+        int i = 1;
+        while (i < words.length) {
+            if (more[i - 1] != words[i]) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Compares this key with another object, word by word.
+     *
+     * @param other the object to compare with
+     * @return true if the other object is a key with the same contents
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BoardKey)) {
+            return false;
+        }
+        BoardKey key = (BoardKey) other;
+        if (hash != key.hash || bits != key.bits || length != key.length || board != key.board) {
+            return false;
+        }
+        if (more == null || key.more == null) {
+            return more == key.more;
+        }
+        int i = 0;
+        while (i < more.length) {
+            if (more[i] != key.more[i]) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the hash code of the key.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Unpacks the key back into its configuration string.
+     *
+     * @return the configuration string
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            if (board) {
+                int square = (int) (word(i / SQUARES_PER_WORD) >>> (2 * (i % SQUARES_PER_WORD))) & 3;
+                sb.append(square == 1 ? 'X' : square == 2 ? 'O' : ' ');
+            } else {
+                sb.append((char) (word(i / CHARS_PER_WORD) >>> (16 * (i % CHARS_PER_WORD))));
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+}
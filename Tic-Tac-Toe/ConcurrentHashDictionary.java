@@ -0,0 +1,563 @@
+/**
+ * ConcurrentHashDictionary.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class implements a thread-safe hash table with separate chaining that can be shared between
+ * games and search threads. The table is split into segments, each with its own buckets and its own
+ * read/write lock, so threads working on different segments never wait for each other. Each segment
+ * resizes on its own, under its own lock, while the other segments stay available.
+ *
+ * The table can be traversed while other threads update it: the spliterator copies the records of
+ * one segment at a time under that segment's read lock, so it sees each segment as it was at the
+ * moment the segment was reached.
+ */
+public class ConcurrentHashDictionary implements DictionaryADT {
+    private final Segment[] segments; // The segments of the table, a power of two of them
+    private final int segmentShift; // The shift that selects a segment from the high bits of a hash code
+    private final LongAdder numRecords = new LongAdder(); // The number of records in all segments
+    private static final double LOAD_FACTOR_THRESHOLD = 0.75; // The load factor threshold for resizing a segment
+    private static final int DEFAULT_SEGMENTS = 64; // The default number of segments
+    private static final int BUCKET_CAPACITY = 2; // The initial capacity of a bucket, which rarely holds more than a couple of records
+
+    /**
+     * This function constructs a ConcurrentHashDictionary with the given total initial size and a
+     * default number of segments.
+     *
+     * @param initialSize the initial size of the hash table, spread over all segments
+     */
+    public ConcurrentHashDictionary(int initialSize) {
+        this(initialSize, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * This function constructs a ConcurrentHashDictionary with the given total initial size and
+     * number of segments. The number of segments is rounded up to a power of two.
+     *
+     * @param initialSize the initial size of the hash table, spread over all segments
+     * @param concurrency the expected number of threads updating the table at the same time
+     */
+    public ConcurrentHashDictionary(int initialSize, int concurrency) {
+        int count = 1;
+        int bits = 0;
+        while (count < concurrency) {
+            count <<= 1;
+            bits++;
+        }
+        this.segments = new Segment[count];
+        this.segmentShift = 32 - bits;
+        int segmentSize = Math.max(2, initialSize / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * This function selects the segment holding the configuration with the given hash code.
+     * The high bits are mixed first so that segments and buckets use different bits of the hash.
+     *
+     * @param hash the hash code of the configuration
+     * @return the segment for the hash code
+     */
+    private Segment segmentFor(int hash) {
+        return segments[segmentIndex(hash)];
+    }
+
+    /**
+     * This function computes the index of the segment holding the configuration with the given hash code.
+     *
+     * @param hash the hash code of the configuration
+     * @return the index of the segment for the hash code
+     */
+    private int segmentIndex(int hash) {
+        int h = hash * 0x9E3779B9;
+        return segmentShift == 32 ? 0 : h >>> segmentShift;
+    }
+
+    /**
+     * This function adds a record to the hash table. Throws a DictionaryException if a record with the same configuration already exists.
+     *
+     * @param record the record to add
+     * @return 1 if a collision occurred, 0 otherwise
+     * @throws DictionaryException if a record with the same configuration exists
+     */
+    @Override
+    public int put(Data record) {
+        int collision = segmentFor(record.getKey().hashCode()).put(record);
+        numRecords.increment();
+        return collision;
+    }
+
+    /**
+     * This function adds a record to the hash table unless a record with the same configuration is
+     * already there. Searches sharing the table use it, as another search may have stored the
+     * configuration first.
+     *
+     * @param record the record to add
+     * @return true if the record was added, false if the configuration was already in the table
+     */
+    public boolean putIfAbsent(Data record) {
+        boolean added = segmentFor(record.getKey().hashCode()).putIfAbsent(record);
+        if (added) {
+            numRecords.increment();
+        }
+        return added;
+    }
+
+    /**
+     * This function removes every record from the hash table, one segment at a time under that
+     * segment's write lock. Other threads may keep using the table while it is cleared.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            numRecords.add(-segment.clear());
+        }
+    }
+
+    /**
+     * This function removes the record with the given configuration from the hash table.
+     *
+     * @param key the configuration to remove
+     * @throws DictionaryException if no record with the given configuration is found
+     */
+    @Override
+    public void remove(BoardKey key) {
+        segmentFor(key.hashCode()).remove(key);
+        numRecords.decrement();
+    }
+
+    /**
+     * This function retrieves the score associated with the given configuration.
+     *
+     * @param key the configuration to look up
+     * @return the score if the configuration is found, -1 otherwise
+     */
+    @Override
+    public int get(BoardKey key) {
+        return segmentFor(key.hashCode()).get(key);
+    }
+
+    /**
+     * This function retrieves the score of a packed board without creating its key, under the read
+     * lock of its segment.
+     *
+     * @param packed the packed board, 2 bits per square
+     * @param length the number of squares
+     * @param hash   the hash code of the board, from BoardKey.boardHash
+     * @return the score if the board is found, -1 otherwise
+     */
+    @Override
+    public int get(long[] packed, int length, int hash) {
+        return segmentFor(hash).get(packed, length, hash);
+    }
+
+    /**
+     * This function retrieves the scores of a list of configurations. The keys are grouped by
+     * segment first, so each segment's read lock is taken once for all of its keys.
+     *
+     * @param keys the configurations to look up
+     * @return the score of each configuration, or -1 if it is not found, in the order of the keys
+     */
+    @Override
+    public int[] getAll(List<BoardKey> keys) {
+        BoardKey[] array = keys.toArray(new BoardKey[0]);
+        int[] scores = new int[array.length];
+        int[] segmentOf = new int[array.length];
+        int[] starts = new int[segments.length + 1];
+        int i = 0;
+        while (i < array.length) {
+            segmentOf[i] = segmentIndex(array[i].hashCode());
+            starts[segmentOf[i] + 1]++;
+            i++;
+        }
+        i = 0;
+        while (i < segments.length) {
+            starts[i + 1] += starts[i];
+            i++;
+        }
+
+        // Counting sort of the key positions by segment
+        int[] order = new int[array.length];
+        int[] next = starts.clone();
+        i = 0;
+        while (i < array.length) {
+            order[next[segmentOf[i]]++] = i;
+            i++;
+        }
+        i = 0;
+        while (i < segments.length) {
+            if (starts[i] < starts[i + 1]) {
+                segments[i].getAll(array, order, starts[i], starts[i + 1], scores);
+            }
+            i++;
+        }
+        return scores;
+    }
+
+    /**
+     * This function returns a spliterator over every record of the hash table. It splits along
+     * ranges of segments and may be used while other threads update the table.
+     *
+     * @return a spliterator over the records
+     */
+    @Override
+    public Spliterator<Data> spliterator() {
+        return new SegmentSpliterator(0, segments.length, numRecords.sum());
+    }
+
+    /**
+     * This function returns the number of records in the hash table. While other threads are
+     * updating the table the result is an estimate.
+     *
+     * @return the number of records in the hash table
+     */
+    @Override
+    public int numRecords() {
+        return numRecords.intValue();
+    }
+
+    /**
+     * This class represents one segment of the table: a separately chained hash table guarded
+     * by its own read/write lock.
+     */
+    private static class Segment {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(); // Guards every field below
+        private ArrayList<Data>[] table; // The buckets of this segment (null buckets are empty)
+        private int numRecords; // The number of records in this segment
+
+        /**
+         * This function constructs a segment with the given number of buckets.
+         *
+         * @param size the number of buckets
+         */
+        Segment(int size) {
+            this.table = newTable(size);
+        }
+
+        /**
+         * This function adds a record to the segment, resizing it first if needed.
+         *
+         * @param record the record to add
+         * @return 1 if a collision occurred, 0 otherwise
+         * @throws DictionaryException if a record with the same configuration exists
+         */
+        int put(Data record) {
+            lock.writeLock().lock();
+            try {
+                if (numRecords >= table.length * LOAD_FACTOR_THRESHOLD) {
+                    resize();
+                }
+                int index = indexFor(record.getKey().hashCode(), table.length);
+                ArrayList<Data> bucket = table[index];
+                if (bucket == null) {
+                    bucket = new ArrayList<>(BUCKET_CAPACITY);
+                    table[index] = bucket;
+                } else if (find(bucket, record.getKey()) != null) {
+                    throw new DictionaryException();
+                }
+                bucket.add(record);
+                numRecords++;
+                return bucket.size() > 1 ? 1 : 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * This function adds a record to the segment unless its configuration is already there.
+         *
+         * @param record the record to add
+         * @return true if the record was added, false otherwise
+         */
+        boolean putIfAbsent(Data record) {
+            lock.writeLock().lock();
+            try {
+                if (find(table[indexFor(record.getKey().hashCode(), table.length)], record.getKey()) != null) {
+                    return false;
+                }
+                put(record); // The write lock is reentrant
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * This function removes every record from the segment, keeping its number of buckets.
+         *
+         * @return the number of records removed
+         */
+        int clear() {
+            lock.writeLock().lock();
+            try {
+                int removed = numRecords;
+                Arrays.fill(table, null);
+                numRecords = 0;
+                return removed;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * This function removes the record with the given configuration from the segment.
+         *
+         * @param key the configuration to remove
+         * @throws DictionaryException if no record with the given configuration is found
+         */
+        void remove(BoardKey key) {
+            lock.writeLock().lock();
+            try {
+                ArrayList<Data> bucket = table[indexFor(key.hashCode(), table.length)];
+                Data data = find(bucket, key);
+                if (data == null) {
+                    throw new DictionaryException();
+                }
+                bucket.remove(data);
+                numRecords--;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * This function retrieves the score associated with the given configuration.
+         *
+         * @param key the configuration to look up
+         * @return the score if the configuration is found, -1 otherwise
+         */
+        int get(BoardKey key) {
+            lock.readLock().lock();
+            try {
+                Data data = find(table[indexFor(key.hashCode(), table.length)], key);
+                return data == null ? -1 : data.getScore();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * This function retrieves the score of a packed board.
+         *
+         * @param packed the packed board
+         * @param length the number of squares
+         * @param hash   the hash code of the board
+         * @return the score if the board is found, -1 otherwise
+         */
+        int get(long[] packed, int length, int hash) {
+            lock.readLock().lock();
+            try {
+                Data data = find(table[indexFor(hash, table.length)], packed, length, hash);
+                return data == null ? -1 : data.getScore();
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * This function retrieves the scores of several configurations of this segment under a single
+         * read lock.
+         *
+         * @param keys   the configurations being looked up
+         * @param order  the positions of the keys, grouped by segment
+         * @param from   the first entry of order belonging to this segment
+         * @param to     one past the last entry of order belonging to this segment
+         * @param scores the array receiving the score of each key, by position
+         */
+        void getAll(BoardKey[] keys, int[] order, int from, int to, int[] scores) {
+            lock.readLock().lock();
+            try {
+                int i = from;
+                while (i < to) {
+                    BoardKey key = keys[order[i]];
+                    Data data = find(table[indexFor(key.hashCode(), table.length)], key);
+                    scores[order[i]] = data == null ? -1 : data.getScore();
+                    i++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * This function copies the records of the segment under its read lock.
+         *
+         * @return the records of the segment
+         */
+        Data[] snapshot() {
+            lock.readLock().lock();
+            try {
+                Data[] records = new Data[numRecords];
+                int i = 0;
+                for (ArrayList<Data> bucket : table) {
+                    if (bucket != null) {
+                        for (Data data : bucket) {
+                            records[i++] = data;
+                        }
+                    }
+                }
+                return records;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * This function doubles the number of buckets of the segment and rehashes its records.
+         * It is only called with the write lock held.
+         */
+        private void resize() {
+            ArrayList<Data>[] newTable = newTable(table.length * 2 + 1);
+            for (ArrayList<Data> bucket : table) {
+                if (bucket == null) {
+                    continue;
+                }
+                for (Data data : bucket) {
+                    int index = indexFor(data.getKey().hashCode(), newTable.length);
+                    if (newTable[index] == null) {
+                        newTable[index] = new ArrayList<>(BUCKET_CAPACITY);
+                    }
+                    newTable[index].add(data);
+                }
+            }
+            table = newTable;
+        }
+
+        /**
+         * This function creates an empty bucket array for a segment, keeping the one unchecked
+         * cast from an ArrayList<?> array in a single place.
+         *
+         * @param size the number of buckets
+         * @return the new table, with every bucket null
+         */
+        @SuppressWarnings("unchecked")
+        private static ArrayList<Data>[] newTable(int size) {
+            return (ArrayList<Data>[]) new ArrayList<?>[size];
+        }
+
+        /**
+         * This function computes the index of a hash code in a table of the given size.
+         *
+         * @param hash      the hash code of the configuration
+         * @param tableSize the size of the table to index into
+         * @return the index for the table
+         */
+        private static int indexFor(int hash, int tableSize) {
+            return (hash & 0x7FFFFFFF) % tableSize;
+        }
+
+        /**
+         * This function finds the record with the given configuration in a single bucket.
+         *
+         * @param bucket the bucket to search, possibly null
+         * @param key    the configuration to look up
+         * @return the record with the given configuration, or null if there is none
+         */
+        private static Data find(ArrayList<Data> bucket, BoardKey key) {
+            if (bucket == null) {
+                return null;
+            }
+            for (int i = 0, n = bucket.size(); i < n; i++) { // Indexed, so a probe allocates no iterator
+                Data data = bucket.get(i);
+                if (data.getKey().equals(key)) {
+                    return data;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * This function finds the record of a packed board in a single bucket.
+         *
+         * @param bucket the bucket to search, possibly null
+         * @param packed the packed board
+         * @param length the number of squares
+         * @param hash   the hash code of the board
+         * @return the record of the board, or null if there is none
+         */
+        private static Data find(ArrayList<Data> bucket, long[] packed, int length, int hash) {
+            if (bucket == null) {
+                return null;
+            }
+            for (int i = 0, n = bucket.size(); i < n; i++) { // Indexed, so a probe allocates no iterator
+                Data data = bucket.get(i);
+                if (data.getKey().hashCode() == hash && data.getKey().matches(packed, length)) {
+                    return data;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * This class traverses a range of segments. The records of a segment are copied when the
+     * segment is reached, and splitting hands the first half of the segments not yet reached
+     * to a new spliterator.
+     */
+    private class SegmentSpliterator implements Spliterator<Data> {
+        private int index; // The next segment to copy
+        private final int fence; // One past the last segment to visit
+        private long estimate; // The estimated number of records left in the range
+        private Data[] records; // The records of the segment being visited, or null
+        private int next; // The next record of the segment being visited
+
+        /**
+         * This function constructs a spliterator over the segments from index (inclusive) to fence
+         * (exclusive).
+         *
+         * @param index    the first segment to visit
+         * @param fence    one past the last segment to visit
+         * @param estimate the estimated number of records in the range
+         */
+        SegmentSpliterator(int index, int fence, long estimate) {
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Data> action) {
+            while (records == null || next == records.length) {
+                if (index >= fence) {
+                    return false;
+                }
+                records = segments[index++].snapshot();
+                next = 0;
+            }
+            action.accept(records[next++]);
+            return true;
+        }
+
+        @Override
+        public Spliterator<Data> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<Data> prefix = new SegmentSpliterator(index, mid, estimate >>> 1);
+            index = mid;
+            estimate -= estimate >>> 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return CONCURRENT | DISTINCT | NONNULL;
+        }
+    }
+}
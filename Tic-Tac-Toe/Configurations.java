@@ -11,6 +11,7 @@ public class Configurations {
     private int boardSize; // The size of the board 
     private int lengthToWin; // The number of consecutive symbols needed to win the game
     private int maxLevels; // The maximum number of levels for the game
+    private long[] packed; // The board packed as in BoardKey, 2 bits per square, kept in step with board
 
     /**
      * This function constructs a new board
@@ -24,6 +25,7 @@ public class Configurations {
         this.lengthToWin = lengthToWin;
         this.maxLevels = maxLevels;
         this.board = new char[boardSize][boardSize];
+        this.packed = new long[BoardKey.wordCount(boardSize * boardSize, true)];
 
         // Initializes the board with empty spaces
         int i = 0;
@@ -52,37 +54,103 @@ public class Configurations {
     /**
      * This function checks if the current board configuration is already in the dictionary.
      *
-     * @param hashTable the hash dictionary to check against
+     * @param hashTable the dictionary to check against
      * @return the score of the configuration if found, otherwise -1
      */
-    public int repeatedConfiguration(HashDictionary hashTable) {
-        String config = boardToString();
-        return hashTable.get(config);
+    public int repeatedConfiguration(DictionaryADT hashTable) {
+        int length = boardSize * boardSize;
+        return hashTable.get(packed, length, BoardKey.boardHash(packed, length)); // No key is created for a lookup
     }
 
     /**
      * This function adds the current board configuration and its score to the dictionary.
      *
-     * @param hashTable the hash dictionary to add the configuration to
+     * @param hashTable the dictionary to add the configuration to
      * @param score     the score associated with the configuration
      */
-    public void addConfiguration(HashDictionary hashTable, int score) {
-        String config = boardToString();
+    public void addConfiguration(DictionaryADT hashTable, int score) {
         try {
-            hashTable.put(new Data(config, score));
+            hashTable.put(new Data(boardKey(), score));
         } catch (DictionaryException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * This function adds the current board configuration and its score to a dictionary shared
+     * between searches, unless another search has already stored the configuration.
+     *
+     * @param hashTable the shared dictionary to add the configuration to
+     * @param score     the score associated with the configuration
+     * @return true if the configuration was added, false if it was already in the dictionary
+     */
+    public boolean shareConfiguration(ConcurrentHashDictionary hashTable, int score) {
+        return hashTable.putIfAbsent(new Data(boardKey(), score));
+    }
+
+    /**
+     * This function replaces the board with the one described by a string in the format
+     * produced by boardToString: one character per square, row by row.
+     *
+     * @param config the string representation of the board
+     * @throws IllegalArgumentException if the string does not have one character per square
+     */
+    public void loadBoard(String config) {
+        if (config.length() != boardSize * boardSize) {
+            throw new IllegalArgumentException("Expected " + boardSize * boardSize + " squares");
+        }
+        int i = 0;
+        while (i < config.length()) {
+            savePlay(i / boardSize, i % boardSize, config.charAt(i));
+            i++;
+        }
+    }
+
+    /**
+     * This function returns the symbol of the player whose turn it is. The human player (X)
+     * always plays first, so it is X's turn whenever both players have made the same number of plays.
+     *
+     * @return 'X' if it is the human's turn, 'O' otherwise
+     */
+    public char nextPlayer() {
+        int xs = 0;
+        int os = 0;
+        int i = 0;
+        int j = 0;
+
+        while (i < boardSize) {
+            if (board[i][j] == 'X') {
+                xs++;
+            } else if (board[i][j] == 'O') {
+                os++;
+            }
+            j++;
+
+            if (j == boardSize) {
+                j = 0;
+                i++;
+            }
+        }
+        return xs > os ? 'O' : 'X';
+    }
+
     /**
      * This function saves a play on the board at the specified row and column with the given symbol.
      *
      * @param row    the row index
      * @param col    the column index
      * @param symbol the symbol to place
+     * @throws IllegalArgumentException if the symbol is not ' ', 'X' or 'O'
      */
     public void savePlay(int row, int col, char symbol) {
+        int code = BoardKey.code(symbol);
+        if (code == -1) {
+            throw new IllegalArgumentException("Invalid symbol '" + symbol + "'");
+        }
+        int square = row * boardSize + col;
+        int word = square / BoardKey.SQUARES_PER_WORD;
+        int shift = 2 * (square % BoardKey.SQUARES_PER_WORD);
+        packed[word] = (packed[word] & ~(3L << shift)) | ((long) code << shift);
         board[row][col] = symbol;
     }
 
@@ -143,6 +211,36 @@ public class Configurations {
         return !wins('X') && !wins('O');
     }
 
+    /**
+     * This function checks if the symbol at the given square is part of a winning line, looking only
+     * at the row, column and diagonals through that square. It is a faster form of wins for the
+     * common case where only the last play can have completed a line.
+     *
+     * @param row    the row index
+     * @param col    the column index
+     * @param symbol the symbol to check for a win
+     * @return true if a line through the square holds lengthToWin consecutive symbols, false otherwise
+     */
+    public boolean winsAt(int row, int col, char symbol) {
+        return countLine(row, col, 0, 1, symbol) >= lengthToWin
+                || countLine(row, col, 1, 0, symbol) >= lengthToWin
+                || countLine(row, col, 1, 1, symbol) >= lengthToWin
+                || countLine(row, col, 1, -1, symbol) >= lengthToWin;
+    }
+
+    /**
+     * This function looks for a forced win for the given player made only of threats: plays that
+     * leave the player one play away from winning, so the opponent's reply is forced. The search
+     * is done by ThreatSearch and is much narrower than the full game-tree search.
+     *
+     * @param symbol     the symbol of the player to move
+     * @param maxThreats the largest number of threats in the forcing sequence
+     * @return the first play of a forced win packed as in Search.pack, or -1 if none was found
+     */
+    public int forcedWin(char symbol, int maxThreats) {
+        return new ThreatSearch(this, boardSize).forcedWin(symbol, maxThreats);
+    }
+
     /**
      * This function evaluates the board and returns a score.
      *
@@ -165,7 +263,7 @@ public class Configurations {
      *
      * @return a string representation of the board
      */
-    private String boardToString() {
+    public String boardToString() {
         StringBuilder sb = new StringBuilder();
         int i = 0;
         int j = 0;
@@ -182,8 +280,45 @@ public class Configurations {
         return sb.toString();
     }
 
-    
-    
+    /**
+     * This function returns the packed key of the board, created when it is added to a dictionary.
+     *
+     * @return the key of the current board
+     */
+    private BoardKey boardKey() {
+        return BoardKey.ofBoard(packed, boardSize * boardSize);
+    }
+
+
+    /**
+     * This function counts the consecutive symbols on the line through a square in the given
+     * direction, including the square itself.
+     *
+     * @param row    the row index
+     * @param col    the column index
+     * @param dRow   the row step of the direction
+     * @param dCol   the column step of the direction
+     * @param symbol the symbol to count
+     * @return the number of consecutive symbols through the square
+     */
+    private int countLine(int row, int col, int dRow, int dCol, char symbol) {
+        int count = 1;
+        int r = row + dRow;
+        int c = col + dCol;
+        while (r >= 0 && r < boardSize && c >= 0 && c < boardSize && board[r][c] == symbol) {
+            count++;
+            r += dRow;
+            c += dCol;
+        }
+        r = row - dRow;
+        c = col - dCol;
+        while (r >= 0 && r < boardSize && c >= 0 && c < boardSize && board[r][c] == symbol) {
+            count++;
+            r -= dRow;
+            c -= dCol;
+        }
+        return count;
+    }
 
     /**
     * This function checks if there is a winning line (row, column, or diagonal) starting at the specified row and column for the given symbol.
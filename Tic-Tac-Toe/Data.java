@@ -2,21 +2,22 @@
  * Data.java
  * Ali Ajwani
  * October 27, 2024
- * 
- * The Data class represents a data structure containing a configuration string and a score.
+ *
+ * The Data class represents a data structure containing a configuration and a score.
+ * The configuration is kept packed in a BoardKey rather than as a string.
  */
 public class Data {
 
     /**
-     * The configuration string for this Data object.
+     * The packed configuration for this Data object.
      */
-    private String config;
- 
+    private BoardKey key;
+
     /**
      * The score associated with this Data object.
      */
     private int score;
- 
+
     /**
      * Constructs a new Data object with a specified configuration and score.
      *
@@ -24,19 +25,38 @@ public class Data {
      * @param var2 the score to set
      */
     public Data(String var1, int var2) {
-       this.config = var1;
-       this.score = var2;
+       this(BoardKey.of(var1), var2);
+    }
+
+    /**
+     * Constructs a new Data object with a specified packed configuration and score.
+     *
+     * @param key   the packed configuration to set
+     * @param score the score to set
+     */
+    public Data(BoardKey key, int score) {
+       this.key = key;
+       this.score = score;
     }
- 
+
     /**
-     * Gets the configuration string of this Data object.
+     * Gets the configuration string of this Data object, unpacked from its key.
      *
      * @return the configuration string
      */
     public String getConfiguration() {
-       return this.config;
+       return this.key.toString();
     }
- 
+
+    /**
+     * Gets the packed configuration of this Data object.
+     *
+     * @return the packed configuration
+     */
+    public BoardKey getKey() {
+       return this.key;
+    }
+
     /**
      * Gets the score of this Data object.
      *
@@ -1,12 +1,70 @@
 
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /* Description of these methods is given in the assignment */
 public interface DictionaryADT {
     
 	public int put (Data pair) throws DictionaryException;
 
-    public void remove (String config) throws DictionaryException;
+    public void remove (BoardKey key) throws DictionaryException;
 
-    public int get (String config);
+    public int get (BoardKey key);
 
     public int numRecords();
+
+    /* Convenience forms keyed by the configuration string; the string is packed into a BoardKey */
+    public default void remove (String config) throws DictionaryException {
+        remove(BoardKey.of(config));
+    }
+
+    public default int get (String config) {
+        return get(BoardKey.of(config));
+    }
+
+    /* Lookup of a packed board without creating its key, for searches probing the table at every
+       node; hash must be BoardKey.boardHash(packed, length). Implementations override it to
+       compare the words in place */
+    public default int get (long[] packed, int length, int hash) {
+        return get(BoardKey.ofBoard(packed, length));
+    }
+
+    /* Traversal of every record. The spliterator splits the table along ranges of buckets so that
+       parallelStream can spread the work over all cores; the table must not be changed while it
+       is being traversed, except where an implementation says otherwise */
+    public Spliterator<Data> spliterator();
+
+    public default void forEach (Consumer<? super Data> action) {
+        spliterator().forEachRemaining(action);
+    }
+
+    public default Stream<Data> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public default Stream<Data> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /* Bulk forms. putAll returns the number of collisions and stops at the first configuration
+       already in the table; getAll returns the score of each key, or -1, in the order given */
+    public default int putAll (List<Data> records) throws DictionaryException {
+        int collisions = 0;
+        for (Data record : records) {
+            collisions += put(record);
+        }
+        return collisions;
+    }
+
+    public default int[] getAll (List<BoardKey> keys) {
+        int[] scores = new int[keys.size()];
+        int i = 0;
+        for (BoardKey key : keys) {
+            scores[i++] = get(key);
+        }
+        return scores;
+    }
 }
@@ -0,0 +1,313 @@
+/**
+ * GameServer.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * This class hosts many games at once over a local TCP socket, bound to the loopback address so
+ * that only clients on the same machine can connect. Every connection is one game session served
+ * by its own thread from a cached pool, while the searches for the computer's plays run on a
+ * fixed pool with one thread per processor. Sessions playing with the
+ * same board size and length to win share one thread-safe dictionary of explored configurations,
+ * which keeps every score with its search depth and bound (see Search). A shared dictionary is
+ * cleared once it holds more than MAX_TABLE_RECORDS configurations, and board sizes and depths
+ * are capped, so no client can make the server use unbounded memory or time.
+ *
+ * The protocol is line based; every command gets exactly one line in reply:
+ *   NEW size length depth   starts a new game, with size   -> OK
+ *                           at most MAX_SIZE and depth
+ *                           at most MAX_DEPTH
+ *   MOVE row col            plays X for the human player   -> OK HUMAN_WINS | OK DRAW
+ *                                                             PLAY row col ONGOING | COMPUTER_WINS | DRAW
+ *   BOARD                   shows the board, '.' is empty  -> BOARD configuration
+ *   HINT count              suggests up to count plays     -> HINTS row col score (row,col ...) ...
+ *                           for X, best first, each with
+ *                           its score and expected line
+ *   QUIT                    ends the session               -> BYE
+ * Errors are reported as ERROR followed by a message.
+ */
+public class GameServer {
+    private final int port; // The port the server listens on
+    private final ExecutorService searchPool; // The threads running the searches
+    private final ConcurrentHashMap<String, ConcurrentHashDictionary> tables = new ConcurrentHashMap<>(); // Shared dictionaries by game settings
+    private static final int TABLE_SIZE = 1 << 16; // The initial size of a shared dictionary
+    public static final int MAX_TABLE_RECORDS = 1 << 20; // The number of records above which a shared dictionary is cleared
+    public static final int MAX_SIZE = 10; // The largest board size a client may ask for
+    public static final int MAX_DEPTH = 6; // The largest search depth a client may ask for
+
+    /**
+     * This function constructs a server on the given port whose searches run on the given number of threads.
+     *
+     * @param port          the port to listen on
+     * @param searchThreads the number of threads running searches
+     */
+    public GameServer(int port, int searchThreads) {
+        this.port = port;
+        this.searchPool = Executors.newFixedThreadPool(searchThreads);
+    }
+
+    /* To run the server type: java GameServer port [search-threads] */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: java GameServer port [search-threads]");
+            System.exit(0);
+        }
+        int port = Integer.parseInt(args[0]);
+        int threads = args.length == 2 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        new GameServer(port, threads).serve();
+    }
+
+    /**
+     * This function opens the server socket on the loopback address and accepts connections until
+     * the process ends.
+     *
+     * @throws IOException if the server socket cannot be opened
+     */
+    public void serve() throws IOException {
+        ServerSocket server = open();
+        System.out.println("Listening on port " + server.getLocalPort());
+        serve(server);
+    }
+
+    /**
+     * This function opens the server socket on the loopback address. Port 0 picks any free port,
+     * which getLocalPort then returns.
+     *
+     * @return the server socket, not yet accepting connections
+     * @throws IOException if the socket cannot be opened
+     */
+    public ServerSocket open() throws IOException {
+        return new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * This function accepts connections on an open server socket until it is closed, serving each
+     * one on its own thread. Once the socket is closed, the search threads are shut down.
+     *
+     * @param server the server socket, as returned by open
+     */
+    public void serve(ServerSocket server) {
+        ExecutorService sessions = Executors.newCachedThreadPool();
+        try (server) {
+            while (true) {
+                Socket socket = server.accept();
+                sessions.submit(() -> runSession(socket));
+            }
+        } catch (IOException e) {
+            // The server socket was closed
+        } finally {
+            sessions.shutdown();
+            searchPool.shutdown();
+        }
+    }
+
+    /**
+     * This function returns the dictionary shared by every game with the given board size and
+     * length to win, creating it the first time it is needed. Games with different depths share
+     * it, since every score is stored with the depth it was searched to.
+     *
+     * @param size  the size of the board
+     * @param toWin the number of consecutive symbols needed to win
+     * @return the shared dictionary
+     */
+    private ConcurrentHashDictionary tableFor(int size, int toWin) {
+        return tables.computeIfAbsent(size + "," + toWin, k -> new ConcurrentHashDictionary(TABLE_SIZE));
+    }
+
+    /**
+     * This function clears a shared dictionary that has grown past MAX_TABLE_RECORDS. Searches
+     * using it at the same time only lose the scores they would have found in it.
+     *
+     * @param table the shared dictionary
+     */
+    private static void trim(ConcurrentHashDictionary table) {
+        if (table.numRecords() > MAX_TABLE_RECORDS) {
+            table.clear();
+        }
+    }
+
+    /**
+     * This function serves one connection until the client quits or disconnects.
+     *
+     * @param socket the connection to serve
+     */
+    private void runSession(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            Session session = new Session();
+            String line;
+            while ((line = in.readLine()) != null) {
+                String reply = session.handle(line.trim());
+                out.println(reply);
+                if (reply.equals("BYE")) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            // The client went away; nothing is left to clean up
+        }
+    }
+
+    /**
+     * This class holds the state of one game session and processes its commands.
+     */
+    private class Session {
+        private Configurations configs; // The board of the current game, null before NEW
+        private Search search; // The search choosing the computer's plays
+        private ConcurrentHashDictionary table; // The dictionary shared with the other games of the same settings
+        private int size; // The size of the board
+        private boolean ended; // Whether the current game has ended
+
+        /**
+         * This function processes one command and returns the reply.
+         *
+         * @param line the command line
+         * @return the reply line
+         */
+        String handle(String line) {
+            StringTokenizer tokenizer = new StringTokenizer(line);
+            if (!tokenizer.hasMoreTokens()) {
+                return "ERROR Empty command";
+            }
+            String command = tokenizer.nextToken().toUpperCase();
+            try {
+                switch (command) {
+                    case "NEW": return newGame(Integer.parseInt(tokenizer.nextToken()),
+                            Integer.parseInt(tokenizer.nextToken()), Integer.parseInt(tokenizer.nextToken()));
+                    case "MOVE": return move(Integer.parseInt(tokenizer.nextToken()), Integer.parseInt(tokenizer.nextToken()));
+                    case "HINT": return hint(Integer.parseInt(tokenizer.nextToken()));
+                    case "BOARD": return configs == null ? "ERROR No game" : "BOARD " + configs.boardToString().replace(' ', '.');
+                    case "QUIT": return "BYE";
+                    default: return "ERROR Invalid command";
+                }
+            } catch (RuntimeException e) {
+                return "ERROR Invalid arguments";
+            }
+        }
+
+        /**
+         * This function starts a new game.
+         *
+         * @param size  the size of the board
+         * @param toWin the number of consecutive symbols needed to win
+         * @param depth the maximum level of the game tree that will be explored
+         * @return the reply line
+         */
+        private String newGame(int size, int toWin, int depth) {
+            if (size < 1 || size > MAX_SIZE || toWin < 1 || toWin > size || depth < 0 || depth > MAX_DEPTH) {
+                return "ERROR Invalid game settings";
+            }
+            this.size = size;
+            this.configs = new Configurations(size, toWin, depth);
+            this.table = tableFor(size, toWin);
+            this.search = new Search(configs, size, depth, table);
+            this.ended = false;
+            return "OK";
+        }
+
+        /**
+         * This function plays the human's move and, if the game goes on, the computer's reply.
+         * The search runs on the search pool while this session's virtual thread waits for it.
+         *
+         * @param row the row of the human's play
+         * @param col the column of the human's play
+         * @return the reply line
+         */
+        private String move(int row, int col) {
+            if (configs == null || ended) {
+                return "ERROR No game in progress";
+            }
+            if (row < 0 || row >= size || col < 0 || col >= size || !configs.squareIsEmpty(row, col)) {
+                return "ERROR Invalid play";
+            }
+            configs.savePlay(row, col, Search.HUMAN);
+            if (configs.wins(Search.HUMAN)) {
+                ended = true;
+                return "OK HUMAN_WINS";
+            }
+            if (configs.isDraw()) {
+                ended = true;
+                return "OK DRAW";
+            }
+
+            PosPlay pos;
+            trim(table);
+            try {
+                pos = searchPool.submit(() -> search.computerPlay(Search.COMPUTER)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "ERROR Search interrupted";
+            } catch (ExecutionException e) {
+                return "ERROR Search failed";
+            }
+            configs.savePlay(pos.getRow(), pos.getCol(), Search.COMPUTER);
+
+            String state = "ONGOING";
+            if (configs.wins(Search.COMPUTER)) {
+                state = "COMPUTER_WINS";
+            } else if (configs.isDraw()) {
+                state = "DRAW";
+            }
+            ended = !state.equals("ONGOING");
+            return "PLAY " + pos.getRow() + " " + pos.getCol() + " " + state;
+        }
+
+        /**
+         * This function analyses the board for the human player and suggests the best plays, each
+         * followed by the line of play expected after it.
+         *
+         * @param count the number of plays to suggest
+         * @return the reply line
+         */
+        private String hint(int count) {
+            if (configs == null || ended) {
+                return "ERROR No game in progress";
+            }
+            if (count < 1) {
+                return "ERROR Invalid arguments";
+            }
+            Variation[] variations;
+            trim(table);
+            try {
+                variations = searchPool.submit(() -> search.analyze(Search.HUMAN, count)).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return "ERROR Search interrupted";
+            } catch (ExecutionException e) {
+                return "ERROR Search failed";
+            }
+
+            StringBuilder reply = new StringBuilder("HINTS");
+            for (Variation variation : variations) {
+                reply.append(' ').append(variation.getRow()).append(' ').append(variation.getCol())
+                        .append(' ').append(variation.getScore()).append(" (");
+                int i = 0;
+                while (i < variation.length()) {
+                    if (i > 0) {
+                        reply.append(' ');
+                    }
+                    reply.append(variation.getRow(i)).append(',').append(variation.getCol(i));
+                    i++;
+                }
+                reply.append(')');
+            }
+            return reply.toString();
+        }
+    }
+}
@@ -4,29 +4,72 @@
  * October 27, 2024
  */
 
-import java.util.LinkedList;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
 
 /**
- * This class implements a hash table with separate chaining using an array of linked lists.
+ * This class implements a hash table with separate chaining using an array of array lists.
  * It stores game configurations and provides functionality to add, retrieve, and remove configurations.
+ *
+ * Resizing is incremental: when the load factor threshold is exceeded a larger table is allocated
+ * and the old table is kept next to it. Every put, get and remove then moves a few buckets from the
+ * old table to the new one, so no single operation pays for rehashing the whole table.
  */
 public class HashDictionary implements DictionaryADT {
-    private LinkedList<Data>[] table; // An array of linked lists to store the hash table
+    private ArrayList<Data>[] table; // An array of bucket lists to store the hash table (null buckets are empty)
     private int size; // The size of the hash table
+    private ArrayList<Data>[] oldTable; // The table being drained during a resize, null otherwise
+    private int oldSize; // The size of the table being drained
+    private int migrated; // The number of buckets of the old table already moved to the new one
     private int numRecords; // The number of records currently in the hash table
     private static final double LOAD_FACTOR_THRESHOLD = 0.75; // The load factor threshold for resizing
-    private static final int PRIME_NUMBER = 39; // The prime number used in the hash function
+    private static final int MIGRATION_STEP = 4; // The number of old buckets moved per operation during a resize
+    private static final int BUCKET_CAPACITY = 2; // The initial capacity of a bucket, which rarely holds more than a couple of records
+    private static final int SNAPSHOT_MAGIC = 0x54545444; // "TTTD", marks a snapshot file
+    private static final int SNAPSHOT_VERSION = 2; // The version of the snapshot layout
+    private static final int MIN_ENTRY_BYTES = 15; // The smallest snapshot entry: flag, length, one word and score
 
     /**
      * This function constructs a HashDictionary with an initial size that is a prime number greater than or equal to the specified initial size.
      *
      * @param initialSize the initial size of the hash table
      */
-    @SuppressWarnings("unchecked")
     public HashDictionary(int initialSize) {
-        int possibleSize = initialSize;
+        this.size = nextPrime(initialSize);
+        this.table = newTable(this.size);
+        this.numRecords = 0;
+    }
 
-        // Find the next prime number greater than or equal to initialSize
+    /**
+     * This function allocates an empty table of buckets. Java cannot create an array of a generic
+     * type, so the array is created with a wildcard type and cast once here.
+     *
+     * @param size the number of buckets
+     * @return the new table, with every bucket null
+     */
+    @SuppressWarnings("unchecked")
+    private static ArrayList<Data>[] newTable(int size) {
+        return (ArrayList<Data>[]) new ArrayList<?>[size];
+    }
+
+    /**
+     * This function finds the smallest prime number greater than or equal to the given number.
+     *
+     * @param n the lower bound for the prime number
+     * @return the next prime number
+     */
+    private static int nextPrime(int n) {
+        int possibleSize = n;
         while (true) {
             boolean isPrime = true;
             if (possibleSize <= 1) {
@@ -40,39 +83,28 @@ public class HashDictionary implements DictionaryADT {
                 }
             }
             if (isPrime) {
-                this.size = possibleSize;
-                break;
+                return possibleSize;
             }
             possibleSize++;
         }
-
-        this.table = new LinkedList[this.size];
-        for (int i = 0; i < this.size; i++) {
-            table[i] = new LinkedList<>();
-        }
-
-        this.numRecords = 0;
     }
 
     /**
-     * This function computes the hash code for a given configuration string.
+     * This function computes the index of a configuration hash code in a table of the given size.
+     * The hash code itself is computed once per key (see BoardKey), so moving a record during a
+     * resize does not scan its configuration again.
      *
-     * @param config the configuration string to hash
-     * @return the computed hash code (index for the table)
+     * @param hash      the hash code of the configuration
+     * @param tableSize the size of the table to index into
+     * @return the index for the table
      */
-    private int hashFunction(String config) {
-        int hash = 0;
-        int i = 0;
-        while (i < config.length()) {
-            hash = (PRIME_NUMBER * hash + config.charAt(i)) % size;
-            i++;
-        }
-        return hash;
+    private static int hashFunction(int hash, int tableSize) {
+        return (hash & 0x7FFFFFFF) % tableSize;
     }
 
     /**
      * This function adds a record to the hash table. Throws a DictionaryException if a record with the same configuration already exists.
-     * Resizes the hash table if the load factor exceeds the threshold.
+     * Starts an incremental resize of the hash table if the load factor exceeds the threshold.
      *
      * @param record the record to add
      * @return 1 if a collision occurred, 0 otherwise
@@ -80,110 +112,383 @@ public class HashDictionary implements DictionaryADT {
      */
     @Override
     public int put(Data record) {
-        if (numRecords >= size * LOAD_FACTOR_THRESHOLD) {
+        migrate();
+        if (oldTable == null && numRecords >= size * LOAD_FACTOR_THRESHOLD) {
             resize();
         }
-        int index = hashFunction(record.getConfiguration());
-    
-        // Check for existing record with the same configuration
-        int i = 0;
-        while (i < table[index].size()) {
-            Data data = table[index].get(i);
-            if (data.getConfiguration().equals(record.getConfiguration())) {
-                throw new DictionaryException();
-            }
-            i++;
+        if (find(record.getKey()) != null) {
+            throw new DictionaryException();
+        }
+
+        int index = hashFunction(record.getKey().hashCode(), size);
+        if (table[index] == null) {
+            table[index] = new ArrayList<>(BUCKET_CAPACITY);
         }
-    
         table[index].add(record);
         numRecords++;
         return table[index].size() > 1 ? 1 : 0;
     }
 
     /**
-     * This function resizes the hash table when the load factor threshold is exceeded.
-     * Finds the next prime size for the resized table, rehashing all existing records.
+     * This function starts a resize of the hash table. A new table whose size is the next prime after
+     * double the current size becomes the active table, and the current table is kept as the old
+     * table until all of its buckets have been moved over by migrate.
      */
-    @SuppressWarnings("unchecked")
     private void resize() {
-        int newSize = size * 2;
+        oldTable = table;
+        oldSize = size;
+        migrated = 0;
 
-        // Find the next prime number greater than or equal to size * 2
-        while (true) {
-            boolean isPrime = true;
-            if (newSize <= 1) {
-                isPrime = false;
-            } else {
-                for (int i = 2; i * i <= newSize; i++) {
-                    if (newSize % i == 0) {
-                        isPrime = false;
-                        break;
+        size = nextPrime(size * 2);
+        table = newTable(size);
+    }
+
+    /**
+     * This function moves up to MIGRATION_STEP buckets from the old table to the new one.
+     * Once the last bucket has been moved the old table is released.
+     */
+    private void migrate() {
+        if (oldTable == null) {
+            return;
+        }
+        int i = 0;
+        while (i < MIGRATION_STEP && migrated < oldSize) {
+            ArrayList<Data> bucket = oldTable[migrated];
+            if (bucket != null) {
+                for (Data data : bucket) {
+                    int index = hashFunction(data.getKey().hashCode(), size);
+                    if (table[index] == null) {
+                        table[index] = new ArrayList<>(BUCKET_CAPACITY);
                     }
+                    table[index].add(data);
                 }
+                oldTable[migrated] = null;
             }
-            if (isPrime) {
-                break;
+            migrated++;
+            i++;
+        }
+        if (migrated == oldSize) {
+            oldTable = null;
+        }
+    }
+
+    /**
+     * This function moves every bucket still left in the old table to the new one, ending a resize
+     * in progress.
+     */
+    private void finishMigration() {
+        while (oldTable != null) {
+            migrate();
+        }
+    }
+
+    /**
+     * This function moves every record to a new table of the given size at once. It is used by
+     * putAll, which knows how many records are coming and so pays for a single rehash up front.
+     *
+     * @param newSize the size of the new table
+     */
+    private void rehash(int newSize) {
+        finishMigration();
+        ArrayList<Data>[] buckets = table;
+        table = newTable(newSize);
+        size = newSize;
+        numRecords = 0;
+        for (ArrayList<Data> bucket : buckets) {
+            if (bucket != null) {
+                for (Data data : bucket) {
+                    insert(data);
+                }
             }
-            newSize++;
         }
+    }
 
-        // Initialize a new table with the calculated prime size
-        LinkedList<Data>[] newTable = new LinkedList[newSize];
-        for (int i = 0; i < newSize; i++) {
-            newTable[i] = new LinkedList<>();
+    /**
+     * This function finds the record with the given configuration in the new table or,
+     * while a resize is in progress, in the old table.
+     *
+     * @param key the configuration to look up
+     * @return the record with the given configuration, or null if there is none
+     */
+    private Data find(BoardKey key) {
+        Data data = find(table[hashFunction(key.hashCode(), size)], key);
+        if (data == null && oldTable != null) {
+            data = find(oldTable[hashFunction(key.hashCode(), oldSize)], key);
         }
+        return data;
+    }
 
-        // Rehash all existing records into the new table
-        for (int i = 0; i < size; i++) {
-            for (Data data : table[i]) {
-                int newIndex = hashFunction(data.getConfiguration());
-                newTable[newIndex].add(data);
+    /**
+     * This function finds the record with the given configuration in a single bucket.
+     *
+     * @param bucket the bucket to search, possibly null
+     * @param key    the configuration to look up
+     * @return the record with the given configuration, or null if there is none
+     */
+    private static Data find(ArrayList<Data> bucket, BoardKey key) {
+        if (bucket == null) {
+            return null;
+        }
+        for (int i = 0, n = bucket.size(); i < n; i++) { // Indexed, so a probe allocates no iterator
+            Data data = bucket.get(i);
+            if (data.getKey().equals(key)) {
+                return data;
             }
         }
+        return null;
+    }
 
-        this.size = newSize;
-        this.table = newTable;
+    /**
+     * This function finds the record of a packed board in a single bucket.
+     *
+     * @param bucket the bucket to search, possibly null
+     * @param packed the packed board
+     * @param length the number of squares
+     * @param hash   the hash code of the board
+     * @return the record of the board, or null if there is none
+     */
+    private static Data find(ArrayList<Data> bucket, long[] packed, int length, int hash) {
+        if (bucket == null) {
+            return null;
+        }
+        for (int i = 0, n = bucket.size(); i < n; i++) { // Indexed, so a probe allocates no iterator
+            Data data = bucket.get(i);
+            if (data.getKey().hashCode() == hash && data.getKey().matches(packed, length)) {
+                return data;
+            }
+        }
+        return null;
     }
 
     /**
      * This function removes the record with the given configuration from the hash table.
      *
-     * @param config the configuration to remove
+     * @param key the configuration to remove
      * @throws DictionaryException if no record with the given configuration is found
      */
     @Override
-    public void remove(String config) {
-        int index = hashFunction(config);
-        for (Data data : table[index]) {
-            if (data.getConfiguration().equals(config)) {
-                table[index].remove(data);
-                numRecords--;
-                return;
-            }
+    public void remove(BoardKey key) {
+        migrate();
+        if (remove(table[hashFunction(key.hashCode(), size)], key)
+                || (oldTable != null && remove(oldTable[hashFunction(key.hashCode(), oldSize)], key))) {
+            numRecords--;
+            return;
         }
         throw new DictionaryException();
     }
 
+    /**
+     * This function removes the record with the given configuration from a single bucket.
+     *
+     * @param bucket the bucket to search, possibly null
+     * @param key    the configuration to remove
+     * @return true if a record was removed, false otherwise
+     */
+    private static boolean remove(ArrayList<Data> bucket, BoardKey key) {
+        Data data = find(bucket, key);
+        return data != null && bucket.remove(data);
+    }
+
     /**
      * This function retrieves the score associated with the given configuration.
      *
-     * @param config the configuration to look up
+     * @param key the configuration to look up
      * @return the score if the configuration is found, -1 otherwise
      */
     @Override
-    public int get(String config) {
-        int index = hashFunction(config);
-        int i = 0;
-        while (i < table[index].size()) {
-            Data data = table[index].get(i);
-            if (data.getConfiguration().equals(config)) {
-                return data.getScore();
+    public int get(BoardKey key) {
+        migrate();
+        Data data = find(key);
+        return data == null ? -1 : data.getScore();
+    }
+
+    /**
+     * This function retrieves the score of a packed board without creating its key.
+     *
+     * @param packed the packed board, 2 bits per square
+     * @param length the number of squares
+     * @param hash   the hash code of the board, from BoardKey.boardHash
+     * @return the score if the board is found, -1 otherwise
+     */
+    @Override
+    public int get(long[] packed, int length, int hash) {
+        migrate();
+        Data data = find(table[hashFunction(hash, size)], packed, length, hash);
+        if (data == null && oldTable != null) {
+            data = find(oldTable[hashFunction(hash, oldSize)], packed, length, hash);
+        }
+        return data == null ? -1 : data.getScore();
+    }
+
+    /**
+     * This function adds every record of a list to the hash table. The table is grown once, before
+     * the first record is added, to hold all of them, instead of resizing along the way.
+     *
+     * @param records the records to add
+     * @return the number of collisions that occurred
+     * @throws DictionaryException if a record with the same configuration exists; the records
+     *                             before it have been added
+     */
+    @Override
+    public int putAll(List<Data> records) {
+        long needed = (long) numRecords + records.size();
+        if (needed >= size * LOAD_FACTOR_THRESHOLD) {
+            rehash(nextPrime((int) Math.min(Integer.MAX_VALUE / 2, (long) (needed / LOAD_FACTOR_THRESHOLD) + 1)));
+        } else {
+            finishMigration();
+        }
+        return DictionaryADT.super.putAll(records);
+    }
+
+    /**
+     * This function returns a spliterator over every record of the hash table. A resize in progress
+     * is finished first so that each record is in exactly one bucket; the spliterator then splits
+     * the buckets into ranges. Records may be looked up while the table is traversed, but not added
+     * or removed.
+     *
+     * @return a spliterator over the records
+     */
+    @Override
+    public Spliterator<Data> spliterator() {
+        finishMigration();
+        return new BucketSpliterator(table, 0, size, numRecords);
+    }
+
+    /**
+     * This function writes every record of the hash table to a compact binary snapshot file.
+     * The file starts with a header (magic, version, number of records) followed by one packed
+     * entry per record: whether the key is a board, its length, its packed words and the score.
+     *
+     * @param fileName the name of the snapshot file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 18); // Large enough for any single entry
+            buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(numRecords);
+            writeBuckets(channel, buffer, table);
+            if (oldTable != null) {
+                writeBuckets(channel, buffer, oldTable);
             }
-            i++;
+            flush(channel, buffer);
+        }
+    }
+
+    /**
+     * This function appends the records of every bucket of a table to the snapshot buffer,
+     * flushing the buffer to the channel whenever the next entry does not fit.
+     *
+     * @param channel the channel of the snapshot file
+     * @param buffer  the buffer holding the bytes not yet written
+     * @param buckets the buckets to write
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void writeBuckets(FileChannel channel, ByteBuffer buffer, ArrayList<Data>[] buckets)
+            throws IOException {
+        for (ArrayList<Data> bucket : buckets) {
+            if (bucket == null) {
+                continue;
+            }
+            for (Data data : bucket) {
+                BoardKey key = data.getKey();
+                if (key.length() > 0xFFFF) {
+                    throw new IOException("Configuration too long for a snapshot entry");
+                }
+                if (buffer.remaining() < key.words() * 8 + 7) {
+                    flush(channel, buffer);
+                }
+                buffer.put((byte) (key.isBoard() ? 1 : 0)).putShort((short) key.length());
+                int i = 0;
+                while (i < key.words()) {
+                    buffer.putLong(key.word(i));
+                    i++;
+                }
+                buffer.putInt(data.getScore());
+            }
+        }
+    }
+
+    /**
+     * This function loads a hash table from a snapshot file written by save. The file is memory-mapped
+     * and the table is sized up front so that no resizing happens while the records are inserted.
+     *
+     * @param fileName the name of the snapshot file to read
+     * @return a new HashDictionary containing every record of the snapshot
+     * @throws IOException if the file cannot be read or is not a valid snapshot, including a
+     *                     negative record count or a truncated or corrupt entry
+     */
+    public static HashDictionary load(String fileName) throws IOException {
+        Path path = Paths.get(fileName);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 12 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a dictionary snapshot: " + fileName);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > buffer.remaining() / MIN_ENTRY_BYTES) {
+                throw new IOException("Corrupt snapshot, bad record count " + count + ": " + fileName);
+            }
+
+            HashDictionary dictionary = new HashDictionary((int) (count / LOAD_FACTOR_THRESHOLD) + 1);
+            int i = 0;
+            while (i < count) {
+                if (buffer.remaining() < 3) {
+                    throw new IOException("Truncated snapshot at record " + i + ": " + fileName);
+                }
+                byte flag = buffer.get();
+                if (flag != 0 && flag != 1) {
+                    throw new IOException("Corrupt snapshot at record " + i + ": " + fileName);
+                }
+                boolean board = flag == 1;
+                int length = buffer.getShort() & 0xFFFF;
+                long[] words = new long[BoardKey.wordCount(length, board)];
+                if (buffer.remaining() < words.length * 8 + 4) {
+                    throw new IOException("Truncated snapshot at record " + i + ": " + fileName);
+                }
+                int j = 0;
+                while (j < words.length) {
+                    words[j] = buffer.getLong();
+                    j++;
+                }
+                int score = buffer.getInt();
+                dictionary.insert(new Data(BoardKey.fromWords(words, length, board), score));
+                i++;
+            }
+            return dictionary;
         }
-        return -1;
     }
-    
+
+    /**
+     * This function writes the contents of the buffer to the channel and clears the buffer.
+     *
+     * @param channel the channel to write to
+     * @param buffer  the buffer holding the bytes to write
+     * @throws IOException if the bytes cannot be written
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * This function adds a record known not to be in the table, without checking for duplicates
+     * or resizing. It is used when loading a snapshot, whose records are unique and pre-sized.
+     *
+     * @param record the record to add
+     */
+    private void insert(Data record) {
+        int index = hashFunction(record.getKey().hashCode(), size);
+        if (table[index] == null) {
+            table[index] = new ArrayList<>(BUCKET_CAPACITY);
+        }
+        table[index].add(record);
+        numRecords++;
+    }
 
     /**
      * This function returns the number of records in the hash table.
@@ -194,4 +499,84 @@ public class HashDictionary implements DictionaryADT {
     public int numRecords() {
         return numRecords;
     }
+
+    /**
+     * This class traverses a range of buckets of the table. Splitting hands the first half of the
+     * buckets not yet visited to a new spliterator, so the records of a bucket are always visited
+     * by one thread.
+     */
+    private static class BucketSpliterator implements Spliterator<Data> {
+        private final ArrayList<Data>[] buckets; // The buckets of the table
+        private int index; // The next bucket to visit
+        private final int fence; // One past the last bucket to visit
+        private long estimate; // The estimated number of records left in the range
+        private Iterator<Data> current; // The records left in the bucket being visited, or null
+
+        /**
+         * This function constructs a spliterator over the buckets from index (inclusive) to fence
+         * (exclusive).
+         *
+         * @param buckets  the buckets of the table
+         * @param index    the first bucket to visit
+         * @param fence    one past the last bucket to visit
+         * @param estimate the estimated number of records in the range
+         */
+        BucketSpliterator(ArrayList<Data>[] buckets, int index, int fence, long estimate) {
+            this.buckets = buckets;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Data> action) {
+            while (current == null || !current.hasNext()) {
+                if (index >= fence) {
+                    return false;
+                }
+                ArrayList<Data> bucket = buckets[index++];
+                current = bucket == null ? null : bucket.iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Data> action) {
+            while (current != null && current.hasNext()) {
+                action.accept(current.next());
+            }
+            current = null;
+            while (index < fence) {
+                ArrayList<Data> bucket = buckets[index++];
+                if (bucket != null) {
+                    for (Data data : bucket) {
+                        action.accept(data);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public Spliterator<Data> trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<Data> prefix = new BucketSpliterator(buckets, index, mid, estimate >>> 1);
+            index = mid;
+            estimate -= estimate >>> 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+    }
 }
@@ -0,0 +1,527 @@
+/**
+ * OffHeapDictionary.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * This class implements a hash table whose records live outside the Java heap, in direct byte
+ * buffers, so that the number of cached configurations does not affect garbage collection.
+ *
+ * Every record occupies one fixed-width slot: the hash code, the score, a state byte, the number
+ * of squares and the board packed as in BoardKey (2 bits per square). Only board configurations
+ * can be stored; keys packed from other strings are rejected. Collisions are
+ * resolved with linear probing and removed records leave a tombstone behind. Once tombstones take
+ * up a quarter of the usable slots, or a put finds the table full of records and tombstones, the
+ * tombstones are cleared and the records moved back into place without allocating a new table.
+ * The table never grows: its capacity is chosen when it is created and put throws a
+ * DictionaryException once the table is full of records.
+ *
+ * Direct buffers cannot be freed explicitly, so the off-heap memory is only returned to the
+ * system when the garbage collector clears the buffers, once release has been called or the
+ * table itself is no longer reachable.
+ */
+public class OffHeapDictionary implements DictionaryADT {
+    private ByteBuffer[] pages; // The direct buffers holding the slots, null once released
+    private final int pageShift; // log2 of the number of slots per page
+    private final int pageMask; // The mask that selects a slot within a page
+    private final int slotSize; // The number of bytes per slot
+    private final int maxKeyLength; // The largest number of squares a slot can hold
+    private final int wordsPerSlot; // The number of packed words per slot
+    private final long mask; // The mask that maps a hash code to a slot (capacity - 1)
+    private final long maxRecords; // The number of records (and tombstones) after which the table is full
+    private int numRecords; // The number of records currently in the table
+    private long usedSlots; // The number of slots holding a record or a tombstone
+
+    private static final int HASH_OFFSET = 0; // Offset of the hash code within a slot
+    private static final int SCORE_OFFSET = 4; // Offset of the score within a slot
+    private static final int STATE_OFFSET = 8; // Offset of the state byte within a slot
+    private static final int LENGTH_OFFSET = 10; // Offset of the number of squares within a slot
+    private static final int KEY_OFFSET = 16; // Offset of the packed words within a slot
+    private static final byte EMPTY = 0; // State of a slot that was never used
+    private static final byte FULL = 1; // State of a slot holding a record
+    private static final byte DELETED = 2; // State of a slot whose record was removed
+    private static final double MAX_LOAD = 0.9; // The fraction of slots that may be used
+    private static final double MAX_TOMBSTONES = 0.25; // The fraction of usable slots that may hold tombstones before they are cleared
+    private static final int MAX_PAGE_BYTES = 1 << 30; // The largest size of a single page
+
+    /**
+     * This function constructs an OffHeapDictionary able to hold the given number of records, each
+     * a board of at most maxKeyLength squares.
+     *
+     * @param capacity     the number of records the table must be able to hold
+     * @param maxKeyLength the number of squares of the largest board that will be stored
+     */
+    public OffHeapDictionary(long capacity, int maxKeyLength) {
+        if (capacity <= 0 || maxKeyLength <= 0 || maxKeyLength > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid capacity or key length");
+        }
+        this.maxKeyLength = maxKeyLength;
+        this.wordsPerSlot = BoardKey.wordCount(maxKeyLength, true);
+        this.slotSize = KEY_OFFSET + 8 * wordsPerSlot;
+
+        long slots = Long.highestOneBit((long) Math.ceil(capacity / MAX_LOAD));
+        if (slots < capacity / MAX_LOAD) {
+            slots <<= 1;
+        }
+        this.mask = slots - 1;
+        this.maxRecords = (long) (slots * MAX_LOAD);
+
+        int shift = 0;
+        while ((1L << (shift + 1)) <= slots && ((long) slotSize << (shift + 1)) <= MAX_PAGE_BYTES) {
+            shift++;
+        }
+        this.pageShift = shift;
+        this.pageMask = (1 << shift) - 1;
+
+        int pageCount = (int) (slots >>> shift);
+        this.pages = new ByteBuffer[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            pages[i] = ByteBuffer.allocateDirect(slotSize << shift);
+        }
+    }
+
+    /**
+     * This function returns the number of bytes of off-heap memory used by the table.
+     *
+     * @return the size of the table in bytes
+     */
+    public long sizeInBytes() {
+        return (mask + 1) * slotSize;
+    }
+
+    /**
+     * This function drops the table's references to its buffers so that the garbage collector can
+     * reclaim them. The memory is not freed by this call: it is returned to the system only when the
+     * collector clears the buffers, which may be much later. The table cannot be used afterwards.
+     */
+    public void release() {
+        pages = null;
+        numRecords = 0;
+        usedSlots = 0;
+    }
+
+    /**
+     * This function adds a record to the hash table. Throws a DictionaryException if a record with the same configuration already exists
+     * or if the table is full.
+     *
+     * @param record the record to add
+     * @return 1 if a collision occurred, 0 otherwise
+     * @throws DictionaryException if a record with the same configuration exists or the table is full
+     */
+    @Override
+    public int put(Data record) {
+        BoardKey key = record.getKey();
+        checkKey(key);
+        int hash = key.hashCode();
+
+        long slot = mix(hash) & mask;
+        long free = -1;
+        int collision = 0;
+        while (true) {
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            byte state = page.get(offset + STATE_OFFSET);
+            if (state == EMPTY) {
+                break;
+            }
+            if (state == DELETED) {
+                if (free == -1) {
+                    free = slot;
+                }
+            } else if (matches(page, offset, hash, key)) {
+                throw new DictionaryException();
+            } else {
+                collision = 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (free == -1) {
+            if (usedSlots >= maxRecords) {
+                if (numRecords < usedSlots) {
+                    purge(); // The tombstones make room for the record
+                    return put(record);
+                }
+                throw new DictionaryException();
+            }
+            free = slot;
+            usedSlots++;
+        }
+        write(page(free), offset(free), hash, record.getScore(), key);
+        numRecords++;
+        return collision;
+    }
+
+    /**
+     * This function removes the record with the given configuration from the hash table.
+     *
+     * @param key the configuration to remove
+     * @throws DictionaryException if no record with the given configuration is found
+     */
+    @Override
+    public void remove(BoardKey key) {
+        long slot = find(key);
+        if (slot == -1) {
+            throw new DictionaryException();
+        }
+        page(slot).put(offset(slot) + STATE_OFFSET, DELETED);
+        numRecords--;
+        if (usedSlots - numRecords > maxRecords * MAX_TOMBSTONES) {
+            purge();
+        }
+    }
+
+    /**
+     * This function retrieves the score associated with the given configuration.
+     *
+     * @param key the configuration to look up
+     * @return the score if the configuration is found, -1 otherwise
+     */
+    @Override
+    public int get(BoardKey key) {
+        long slot = find(key);
+        return slot == -1 ? -1 : page(slot).getInt(offset(slot) + SCORE_OFFSET);
+    }
+
+    /**
+     * This function retrieves the score of a packed board without creating its key, comparing the
+     * words of the board with those of each slot in place.
+     *
+     * @param packed the packed board, 2 bits per square
+     * @param length the number of squares
+     * @param hash   the hash code of the board, from BoardKey.boardHash
+     * @return the score if the board is found, -1 otherwise
+     */
+    @Override
+    public int get(long[] packed, int length, int hash) {
+        if (pages == null) {
+            throw new IllegalStateException("Dictionary has been released");
+        }
+        if (length > maxKeyLength) {
+            return -1;
+        }
+        long slot = mix(hash) & mask;
+        while (true) {
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            byte state = page.get(offset + STATE_OFFSET);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == FULL && matches(page, offset, hash, packed, length)) {
+                return page.getInt(offset + SCORE_OFFSET);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * This function returns the number of records in the hash table.
+     *
+     * @return the number of records in the hash table
+     */
+    @Override
+    public int numRecords() {
+        return numRecords;
+    }
+
+    /**
+     * This function returns a spliterator over every record of the table. It splits along ranges of
+     * slots, and each record it visits is read back from its slot into a new Data object.
+     *
+     * @return a spliterator over the records
+     * @throws IllegalStateException if the table has been released
+     */
+    @Override
+    public Spliterator<Data> spliterator() {
+        if (pages == null) {
+            throw new IllegalStateException("Dictionary has been released");
+        }
+        return new SlotSpliterator(0, mask + 1, numRecords);
+    }
+
+    /**
+     * This function finds the slot holding the given configuration.
+     *
+     * @param key the configuration to look up
+     * @return the slot of the configuration, or -1 if it is not in the table
+     */
+    private long find(BoardKey key) {
+        if (pages == null) {
+            throw new IllegalStateException("Dictionary has been released");
+        }
+        if (!key.isBoard() || key.length() > maxKeyLength) {
+            return -1;
+        }
+        int hash = key.hashCode();
+        long slot = mix(hash) & mask;
+        while (true) {
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            byte state = page.get(offset + STATE_OFFSET);
+            if (state == EMPTY) {
+                return -1;
+            }
+            if (state == FULL && matches(page, offset, hash, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * This function clears every tombstone of the table in place. The tombstones become empty
+     * slots, which can cut a record off from the slot its probe starts at, so every record is then
+     * moved to the first empty slot between that start and its current slot, if there is one.
+     *
+     * The records are visited in probe order starting after a slot that was empty before the
+     * tombstones were cleared. No probe sequence runs through that slot, so a record is only ever
+     * moved to a slot visited before it, and the empty slot it leaves behind only affects records
+     * visited after it.
+     */
+    private void purge() {
+        long slots = mask + 1;
+        long start = -1; // A slot that was empty before the tombstones were cleared
+        long slot = 0;
+        while (slot < slots) {
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            byte state = page.get(offset + STATE_OFFSET);
+            if (state == DELETED) {
+                page.put(offset + STATE_OFFSET, EMPTY);
+            } else if (state == EMPTY && start == -1) {
+                start = slot;
+            }
+            slot++;
+        }
+
+        long i = 1;
+        while (i <= slots) {
+            slot = (start + i) & mask;
+            ByteBuffer page = page(slot);
+            int offset = offset(slot);
+            if (page.get(offset + STATE_OFFSET) == FULL) {
+                long target = mix(page.getInt(offset + HASH_OFFSET)) & mask;
+                while (target != slot && page(target).get(offset(target) + STATE_OFFSET) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                if (target != slot) {
+                    ByteBuffer to = page(target);
+                    int toOffset = offset(target);
+                    int b = 0;
+                    while (b < slotSize) {
+                        to.putLong(toOffset + b, page.getLong(offset + b));
+                        b += 8;
+                    }
+                    page.put(offset + STATE_OFFSET, EMPTY);
+                }
+            }
+            i++;
+        }
+        usedSlots = numRecords;
+    }
+
+    /**
+     * This function checks whether the slot at the given offset holds the given configuration.
+     *
+     * @param page   the page holding the slot
+     * @param offset the offset of the slot within the page
+     * @param hash   the hash code of the configuration
+     * @param key    the configuration to compare with
+     * @return true if the slot holds the configuration, false otherwise
+     */
+    private static boolean matches(ByteBuffer page, int offset, int hash, BoardKey key) {
+        if (page.getInt(offset + HASH_OFFSET) != hash
+                || (page.getShort(offset + LENGTH_OFFSET) & 0xFFFF) != key.length()) {
+            return false;
+        }
+        int i = 0;
+        while (i < key.words()) {
+            if (page.getLong(offset + KEY_OFFSET + 8 * i) != key.word(i)) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * This function checks whether the slot at the given offset holds the given packed board.
+     *
+     * @param page   the page holding the slot
+     * @param offset the offset of the slot within the page
+     * @param hash   the hash code of the board
+     * @param packed the packed board
+     * @param length the number of squares
+     * @return true if the slot holds the board, false otherwise
+     */
+    private static boolean matches(ByteBuffer page, int offset, int hash, long[] packed, int length) {
+        if (page.getInt(offset + HASH_OFFSET) != hash
+                || (page.getShort(offset + LENGTH_OFFSET) & 0xFFFF) != length) {
+            return false;
+        }
+        int i = 0;
+        while (i < packed.length) {
+            if (page.getLong(offset + KEY_OFFSET + 8 * i) != packed[i]) {
+                return false;
+            }
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * This function writes a record into the slot at the given offset.
+     *
+     * @param page   the page holding the slot
+     * @param offset the offset of the slot within the page
+     * @param hash   the hash code of the configuration
+     * @param score  the score of the configuration
+     * @param key    the configuration
+     */
+    private static void write(ByteBuffer page, int offset, int hash, int score, BoardKey key) {
+        page.putInt(offset + HASH_OFFSET, hash);
+        page.putInt(offset + SCORE_OFFSET, score);
+        page.putShort(offset + LENGTH_OFFSET, (short) key.length());
+        int i = 0;
+        while (i < key.words()) {
+            page.putLong(offset + KEY_OFFSET + 8 * i, key.word(i));
+            i++;
+        }
+        page.put(offset + STATE_OFFSET, FULL);
+    }
+
+    /**
+     * This function checks that a configuration fits in a slot.
+     *
+     * @param key the configuration to check
+     * @throws IllegalStateException if the table has been released
+     * @throws IllegalArgumentException if the configuration does not fit in a slot
+     */
+    private void checkKey(BoardKey key) {
+        if (pages == null) {
+            throw new IllegalStateException("Dictionary has been released");
+        }
+        if (!key.isBoard()) {
+            throw new IllegalArgumentException("Only board configurations can be stored off-heap");
+        }
+        if (key.length() > maxKeyLength) {
+            throw new IllegalArgumentException("Configuration larger than " + maxKeyLength + " squares");
+        }
+    }
+
+    /**
+     * This function returns the page holding a slot.
+     *
+     * @param slot the slot
+     * @return the page holding the slot
+     */
+    private ByteBuffer page(long slot) {
+        return pages[(int) (slot >>> pageShift)];
+    }
+
+    /**
+     * This function returns the offset of a slot within its page.
+     *
+     * @param slot the slot
+     * @return the offset of the slot in bytes
+     */
+    private int offset(long slot) {
+        return ((int) slot & pageMask) * slotSize;
+    }
+
+    /**
+     * This function spreads the bits of a hash code so that linear probing over a power of two
+     * number of slots does not depend on the low bits alone.
+     *
+     * @param hash the hash code to spread
+     * @return the spread hash code
+     */
+    private static long mix(int hash) {
+        long h = hash * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * This class traverses a range of slots, skipping empty slots and tombstones. Splitting hands
+     * the first half of the slots not yet visited to a new spliterator.
+     */
+    private class SlotSpliterator implements Spliterator<Data> {
+        private long index; // The next slot to visit
+        private final long fence; // One past the last slot to visit
+        private long estimate; // The estimated number of records left in the range
+
+        /**
+         * This function constructs a spliterator over the slots from index (inclusive) to fence
+         * (exclusive).
+         *
+         * @param index    the first slot to visit
+         * @param fence    one past the last slot to visit
+         * @param estimate the estimated number of records in the range
+         */
+        SlotSpliterator(long index, long fence, long estimate) {
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Data> action) {
+            while (index < fence) {
+                ByteBuffer page = page(index);
+                int offset = offset(index);
+                index++;
+                if (page.get(offset + STATE_OFFSET) == FULL) {
+                    action.accept(read(page, offset));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<Data> trySplit() {
+            long mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator<Data> prefix = new SlotSpliterator(index, mid, estimate >>> 1);
+            index = mid;
+            estimate -= estimate >>> 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
+        }
+
+        /**
+         * This function reads the record in the slot at the given offset.
+         *
+         * @param page   the page holding the slot
+         * @param offset the offset of the slot within the page
+         * @return the record
+         */
+        private Data read(ByteBuffer page, int offset) {
+            int length = page.getShort(offset + LENGTH_OFFSET) & 0xFFFF;
+            long[] words = new long[BoardKey.wordCount(length, true)];
+            int i = 0;
+            while (i < words.length) {
+                words[i] = page.getLong(offset + KEY_OFFSET + 8 * i);
+                i++;
+            }
+            return new Data(BoardKey.fromWords(words, length, true), page.getInt(offset + SCORE_OFFSET));
+        }
+    }
+}
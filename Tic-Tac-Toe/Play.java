@@ -18,9 +18,8 @@ public class Play extends JFrame {
      private JButton [][] gameDisplay;/* Game board */
      private Configurations configs;       
      private int board_size;    /* Size of game board */
-     private int max_level;     /* Maximum level of the game tree that
-                                   will be explored                    */
-     private HashDictionary configurations;
+     private Search search;     /* Explores the game tree to choose the
+                                   computer's plays                    */
 
 
     /* Constructor. Creates a panel to represent the game board and destroys
@@ -43,8 +42,8 @@ public class Play extends JFrame {
            }
                
 	board_size = size;
-	max_level = depth;
     configs = new Configurations(size,to_win,depth); /* User code needed to play */
+    search = new Search(configs,size,depth);
     }
 
     
@@ -127,7 +126,7 @@ public class Play extends JFrame {
 		    else {
 			if (configs.isDraw()) endGame("Game is a draw"); 
 			else {
-			    pos = computerPlay(COMPUTER,-1,4,0);
+			    pos = search.computerPlay(COMPUTER);
  			    configs.savePlay(pos.getRow(),pos.getCol(),COMPUTER);
 			    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
 						new ImageIcon("computer.gif"));
@@ -142,71 +141,6 @@ public class Play extends JFrame {
         }
 
 
-	/* Explore the game tree and choose the best move for the computer */
-	private PosPlay computerPlay(char symbol, int highest_score, 
-                                     int lowest_score, int level) {
-
-	char opponent;           // Opponent's symbol
-        PosPlay reply;           // Opponent's best reply
- 
-        int bestRow = -1;
-        int bestColumn = -1;     // Position of best play
-
-        int value;
-	int lookupVal;
-
-	if (level == 0)   /* Create new hash table */
-	    configurations = configs.createDictionary();    
-
-        if( symbol == COMPUTER ) {
-            opponent = HUMAN; value = -1;
-        }
-        else {
-            opponent = COMPUTER; value = 4;
-        }
-
-        for(int row = 0; row < board_size; row++)
-            for(int column = 0; column < board_size; column++) {
-                if(configs.squareIsEmpty(row,column)) {     // Empty position
-                    configs.savePlay(row,column,symbol);   // Store next play
-		    if (configs.wins(symbol)||configs.isDraw()||(level >= max_level))
-                        // Game ending situation or max number of levels reached 
-			reply = new PosPlay(configs.evalBoard(),row,column);
-		    else {
-			lookupVal = configs.repeatedConfiguration(configurations);
-			if (lookupVal != -1) 
-			    reply = new PosPlay(lookupVal,row,column);
-			else {
-			    reply = computerPlay(opponent, highest_score, 
-                                         lowest_score, level + 1);
-			    if (configs.repeatedConfiguration(configurations) == -1)
-			        configs.addConfiguration(configurations,reply.getScore());
-			}
-		    }
-		    configs.savePlay(row,column,' ');
-                    
-		    if((symbol == COMPUTER && reply.getScore() > value) ||
-		       (symbol == HUMAN && reply.getScore() < value)) {
-			 bestRow = row; 
-			 bestColumn = column;
-			 value = reply.getScore();
-
-			 /* Alpha/beta cut */
-			 if (symbol == COMPUTER && value > highest_score) 
-			     highest_score = value;
-			 else if (symbol == HUMAN && value < lowest_score) 
-			     lowest_score = value;
-
-			 if (highest_score >= lowest_score) 
-			     return new PosPlay(value, bestRow, bestColumn);
-		    }
-		    
-		}
-	    }
-         return new PosPlay(value, bestRow, bestColumn);
-        }
-
-
 	/* Prompt the user for a key to terminate the game */
 	private void endGame(String mssg) {
 	    System.out.println(mssg);
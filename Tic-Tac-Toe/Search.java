@@ -0,0 +1,570 @@
+/**
+ * Search.java
+ * Ali Ajwani
+ * October 27, 2024
+ *
+ * This class explores the game tree with alpha/beta pruning to choose the computer's play.
+ * Inside the search a play is passed around as a single packed int holding its score, row and
+ * column, so visiting a node allocates no objects; a PosPlay is only created for the caller.
+ */
+public class Search {
+    public static final char COMPUTER = 'O'; // The symbol of the computer player
+    public static final char HUMAN = 'X'; // The symbol of the human player
+    public static final int MAX_BOARD_SIZE = 0xFFF; // The largest board size whose rows and columns, plus one, fit in a packed play
+    static final int EXACT = 0; // A shared score that is the exact score of its configuration
+    static final int LOWER = 1; // A shared score that the exact score is at least
+    static final int UPPER = 2; // A shared score that the exact score is at most
+
+    private Configurations configs; // The board being searched
+    private int boardSize; // The size of the board
+    private int maxLevel; // The maximum level of the game tree that will be explored
+    private DictionaryADT configurations; // The scores of the configurations already explored
+    private ConcurrentHashDictionary shared; // The dictionary shared and kept between searches, or null
+    private int threatLimit; // The longest threat sequence looked for at the root and leaves, 0 for none
+    private int[][] reductions; // The late move reduction table, null when reductions are off
+    private int[][] moveBuffers; // The plays of the board at each level, allocated once
+    private int[][] keyBuffers; // The sort keys of those plays
+    private int[][] pvTable; // The principal variation found below each level, row per level, allocated once
+    private int[] pvLength; // One past the last play of each row of pvTable
+    private boolean exactOnly; // Whether only exact scores are stored in the dictionary, as during analyze
+    private long nodes; // The number of boards visited by the last search
+    private long lookups; // The number of dictionary lookups made by the last search
+    private long hits; // The number of those lookups that found the configuration
+
+    /**
+     * This function constructs a search over the given board.
+     *
+     * @param configs   the board to search
+     * @param boardSize the size of the board
+     * @param maxLevel  the maximum level of the game tree that will be explored
+     * @throws IllegalArgumentException if the board is larger than MAX_BOARD_SIZE
+     */
+    public Search(Configurations configs, int boardSize, int maxLevel) {
+        if (boardSize > MAX_BOARD_SIZE) {
+            throw new IllegalArgumentException("Board size larger than " + MAX_BOARD_SIZE);
+        }
+        this.configs = configs;
+        this.boardSize = boardSize;
+        this.maxLevel = maxLevel;
+    }
+
+    /**
+     * This function constructs a search over the given board that keeps the scores of explored
+     * configurations in the given dictionary. The dictionary is kept between searches and may be
+     * shared with searches over other boards of the same size and length to win, whatever their
+     * depth and wherever their roots are, as long as they all use the same threat search and late
+     * move reductions settings.
+     *
+     * A score stored in a shared dictionary is kept with the number of levels that were searched
+     * below the configuration and with whether it is exact or only a bound, since a search cut off
+     * by its alpha/beta window only learns that the score is at least (or at most) what it found.
+     * A stored score is used only by a search with the same number of levels left below the
+     * configuration, and a bound only when it is enough to decide the current window.
+     *
+     * @param configs        the board to search
+     * @param boardSize      the size of the board
+     * @param maxLevel       the maximum level of the game tree that will be explored
+     * @param configurations the shared dictionary of explored configurations
+     * @throws IllegalArgumentException if the board is larger than MAX_BOARD_SIZE
+     */
+    public Search(Configurations configs, int boardSize, int maxLevel, ConcurrentHashDictionary configurations) {
+        this(configs, boardSize, maxLevel);
+        this.configurations = configurations;
+        this.shared = configurations;
+    }
+
+    /**
+     * This function turns on the threat search. Before exploring the game tree the search then
+     * looks for a forced win made of at most maxThreats threats for the player to move, and every
+     * board at the maximum level that is not decided is checked for such a win for the player
+     * whose turn it would be. A value of 0 turns the threat search off.
+     *
+     * @param maxThreats the largest number of threats in a forcing sequence, or 0
+     */
+    public void setThreatSearch(int maxThreats) {
+        this.threatLimit = maxThreats;
+    }
+
+    /**
+     * This function turns on late move reductions with the given table, or turns them off when the
+     * table is null or reduces no play. Entry [d][i] is the number of levels by which the i-th play
+     * (in search order) of a board with d levels left below it is reduced; indexes beyond the end of
+     * the table use its last entries.
+     *
+     * @param reductions the reduction table, or null
+     */
+    public void setLateMoveReductions(int[][] reductions) {
+        this.reductions = reducesAny(reductions) ? reductions : null;
+    }
+
+    /**
+     * This function tells whether a reduction table reduces any play. A table that does not is
+     * taken as no table at all, so that the plays also keep their row order and the search visits
+     * exactly the boards it would without reductions.
+     *
+     * @param reductions the reduction table, or null
+     * @return true if some entry of the table is positive, false otherwise
+     */
+    private static boolean reducesAny(int[][] reductions) {
+        if (reductions == null) {
+            return false;
+        }
+        for (int[] row : reductions) {
+            for (int reduction : row) {
+                if (reduction > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * This function returns the default late move reduction table: the first three plays of every
+     * board are searched in full, later plays are reduced by one level when at least two levels
+     * are left, and plays after the eighth by two levels when at least three are left.
+     *
+     * @return a new copy of the default reduction table
+     */
+    public static int[][] defaultReductions() {
+        return new int[][] {
+            {0},
+            {0},
+            {0, 0, 0, 1},
+            {0, 0, 0, 1, 1, 1, 1, 1, 2}
+        };
+    }
+
+    /**
+     * This function explores the game tree and chooses the best play for the given player.
+     * Unless the search was given a shared dictionary, a new dictionary of explored
+     * configurations is created for every call.
+     *
+     * @param symbol the symbol of the player to move
+     * @return the best play and its score
+     */
+    public PosPlay computerPlay(char symbol) {
+        prepare();
+        int play = threatLimit > 0 ? configs.forcedWin(symbol, threatLimit) : -1;
+        if (play == -1) {
+            play = search(symbol, -1, 4, 0, false);
+        }
+        return new PosPlay(scoreOf(play), rowOf(play), colOf(play));
+    }
+
+    /**
+     * This function analyses the board and returns the best plays for the given player, up to count
+     * of them, best first, each with its exact score and its principal variation. The analysis is a
+     * single search: every root play is searched with a window that only asks whether it beats the
+     * last of the best plays found so far, so plays that cannot make the list cost little, and all
+     * the plays share one dictionary of explored configurations. Plays with equal scores keep the
+     * order in which they were searched.
+     *
+     * A score found outside its search window is only a bound, which computerPlay may store but
+     * which would make the score of a later line wrong. The analysis therefore stores only the
+     * scores that fell inside their window, in a dictionary of its own even when the search was
+     * given a shared one.
+     *
+     * @param symbol the symbol of the player to move
+     * @param count  the number of plays wanted
+     * @return the best plays, at most count of them and fewer if the board has fewer empty squares
+     */
+    public Variation[] analyze(char symbol, int count) {
+        prepare();
+        DictionaryADT kept = configurations;
+        if (shared != null) {
+            configurations = configs.createDictionary();
+        }
+        exactOnly = true;
+        try {
+            return analyzeRoot(symbol, count);
+        } finally {
+            configurations = kept;
+            exactOnly = false;
+        }
+    }
+
+    /**
+     * This function searches every root play for analyze and collects the best of them.
+     *
+     * @param symbol the symbol of the player to move
+     * @param count  the number of plays wanted
+     * @return the best plays, best first
+     */
+    private Variation[] analyzeRoot(char symbol, int count) {
+        char opponent = symbol == COMPUTER ? HUMAN : COMPUTER;
+        int[] moves = moveBuffers[0];
+        int numMoves = generatePlays(moves, 0);
+        int[] scores = new int[Math.max(0, Math.min(count, numMoves))]; // The scores of the best plays, best first
+        int[][] lines = new int[scores.length][]; // Their variations, as row * boardSize + column
+        int found = 0;
+
+        for (int i = 0; i < numMoves; i++) {
+            int row = moves[i] / boardSize;
+            int column = moves[i] % boardSize;
+            configs.savePlay(row, column, symbol);
+            nodes++;
+            int score;
+            int length = 0;
+            if (configs.wins(symbol) || configs.isDraw() || maxLevel <= 0) {
+                score = configs.evalBoard();
+                if (score == 1 && threatLimit > 0 && configs.forcedWin(opponent, threatLimit) != -1) {
+                    score = opponent == COMPUTER ? 3 : 0;
+                }
+            } else {
+                // Once the list is full a play only has to be searched well enough to tell it does not beat the last one
+                boolean hasRoom = found < scores.length; // Whether the list still has room for another play
+                if (symbol == COMPUTER) {
+                    score = scoreOf(search(opponent, hasRoom ? -1 : scores[found - 1], 4, 1, false));
+                } else {
+                    score = scoreOf(search(opponent, -1, hasRoom ? 4 : scores[found - 1], 1, false));
+                }
+                length = pvLength[1] - 1;
+                if (hasRoom || (symbol == COMPUTER ? score > scores[found - 1] : score < scores[found - 1])) {
+                    configs.addConfiguration(configurations, score); // Exact, so it can be shared
+                }
+            }
+            configs.savePlay(row, column, ' ');
+
+            // Insert the play after every play at least as good, dropping the last one if the list is full
+            int position = found;
+            while (position > 0 && (symbol == COMPUTER ? score > scores[position - 1] : score < scores[position - 1])) {
+                position--;
+            }
+            if (position == scores.length) {
+                continue;
+            }
+            int last = Math.min(found, scores.length - 1);
+            System.arraycopy(scores, position, scores, position + 1, last - position);
+            System.arraycopy(lines, position, lines, position + 1, last - position);
+            int[] line = new int[length + 1];
+            line[0] = moves[i];
+            System.arraycopy(pvTable[1], 1, line, 1, length);
+            scores[position] = score;
+            lines[position] = line;
+            found = Math.min(found + 1, scores.length);
+        }
+
+        Variation[] variations = new Variation[found];
+        for (int i = 0; i < found; i++) {
+            int[] rows = new int[lines[i].length];
+            int[] cols = new int[lines[i].length];
+            for (int j = 0; j < rows.length; j++) {
+                rows[j] = lines[i][j] / boardSize;
+                cols[j] = lines[i][j] % boardSize;
+            }
+            variations[i] = new Variation(scores[i], rows, cols);
+        }
+        return variations;
+    }
+
+    /**
+     * This function prepares a new search: it creates the dictionary of explored configurations
+     * unless the search was given a shared one, resets the counters and allocates the buffers
+     * on the first call.
+     */
+    private void prepare() {
+        if (shared == null) {
+            configurations = configs.createDictionary();
+        }
+        nodes = 0;
+        lookups = 0;
+        hits = 0;
+        if (moveBuffers == null) {
+            moveBuffers = new int[maxLevel + 1][boardSize * boardSize];
+            keyBuffers = new int[maxLevel + 1][boardSize * boardSize];
+            pvTable = new int[maxLevel + 1][maxLevel + 1];
+            pvLength = new int[maxLevel + 1];
+        }
+    }
+
+    /**
+     * This function returns the number of boards visited by the last call to computerPlay.
+     *
+     * @return the number of boards visited
+     */
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    /**
+     * This function returns the fraction of the dictionary lookups of the last call to
+     * computerPlay that found the configuration already explored.
+     *
+     * @return the hit rate, between 0 and 1
+     */
+    public double getHitRate() {
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * This function packs a score and a position into a single int. The score (-1 to 4) and the
+     * row and column (-1 for no play) are each stored shifted by one so they are never negative.
+     * The row and column take 12 bits each, which is why boards are at most MAX_BOARD_SIZE squares wide.
+     *
+     * @param score  the score of the play
+     * @param row    the row of the play
+     * @param column the column of the play
+     * @return the packed play
+     */
+    static int pack(int score, int row, int column) {
+        return ((score + 1) << 24) | ((row + 1) << 12) | (column + 1);
+    }
+
+    /**
+     * This function returns the score of a packed play.
+     *
+     * @param play the packed play
+     * @return the score of the play
+     */
+    static int scoreOf(int play) {
+        return (play >>> 24) - 1;
+    }
+
+    /**
+     * This function returns the row of a packed play.
+     *
+     * @param play the packed play
+     * @return the row of the play, or -1 if there is no play
+     */
+    static int rowOf(int play) {
+        return ((play >>> 12) & 0xFFF) - 1;
+    }
+
+    /**
+     * This function returns the column of a packed play.
+     *
+     * @param play the packed play
+     * @return the column of the play, or -1 if there is no play
+     */
+    static int colOf(int play) {
+        return (play & 0xFFF) - 1;
+    }
+
+    /**
+     * This function packs a score for the shared dictionary with its bound and the number of levels
+     * searched below the configuration: the score (0 to 3) takes the low 2 bits, the bound the next
+     * 2 and the number of levels the rest, so an entry is never negative.
+     *
+     * @param score     the score
+     * @param bound     EXACT, LOWER or UPPER
+     * @param remaining the number of levels searched below the configuration
+     * @return the entry
+     */
+    static int entry(int score, int bound, int remaining) {
+        return (remaining << 4) | (bound << 2) | score;
+    }
+
+    /**
+     * This function looks the current board up in the shared dictionary and returns its score if the
+     * stored entry was searched to the same number of levels and decides the current window.
+     *
+     * @param remaining     the number of levels that would be searched below the board
+     * @param highest_score the best score the computer is already assured of (alpha)
+     * @param lowest_score  the best score the human is already assured of (beta)
+     * @return the usable score, or -1 if there is none
+     */
+    private int sharedScore(int remaining, int highest_score, int lowest_score) {
+        int entry = configs.repeatedConfiguration(shared);
+        if (entry == -1 || entry >>> 4 != remaining) {
+            return -1;
+        }
+        int score = entry & 3;
+        int bound = (entry >>> 2) & 3;
+        if (bound == EXACT || (bound == LOWER && score >= lowest_score) || (bound == UPPER && score <= highest_score)) {
+            return score;
+        }
+        return -1;
+    }
+
+    /**
+     * This function explores the game tree below the current board and returns the best play for
+     * the given player, packed with pack.
+     *
+     * When late move reductions are on, the plays are tried best-looking first and every play after
+     * the first few is searched to a reduced depth with a null window around the score to beat; only
+     * the plays that beat it are searched again to full depth with the full window. Scores found in
+     * a reduced search are not stored in the dictionary, as they come from a shallower search.
+     *
+     * The principal variation of the board is left in row level of pvTable, from index level to
+     * pvLength[level]. It stops early where a play's score came from the dictionary.
+     *
+     * @param symbol        the symbol of the player to move
+     * @param highest_score the best score the computer is already assured of (alpha)
+     * @param lowest_score  the best score the human is already assured of (beta)
+     * @param level         the level of the current board in the game tree
+     * @param reduced       whether this board is part of a reduced search
+     * @return the best play and its score, packed
+     */
+    private int search(char symbol, int highest_score, int lowest_score, int level, boolean reduced) {
+        char opponent;           // Opponent's symbol
+        int replyScore;          // Score of the opponent's best reply
+
+        int bestRow = -1;
+        int bestColumn = -1;     // Position of best play
+
+        int value;
+        int lookupVal;
+
+        if (symbol == COMPUTER) {
+            opponent = HUMAN; value = -1;
+        } else {
+            opponent = COMPUTER; value = 4;
+        }
+
+        pvLength[level] = level;
+        int[] moves = moveBuffers[level];
+        int numMoves = generatePlays(moves, level);
+        for (int i = 0; i < numMoves; i++) {
+            int row = moves[i] / boardSize;
+            int column = moves[i] % boardSize;
+            int line = -1;           // The level whose row of pvTable holds the reply's variation, -1 for none
+            configs.savePlay(row, column, symbol);   // Store next play
+            nodes++;
+            if (configs.wins(symbol) || configs.isDraw() || (level >= maxLevel)) {
+                // Game ending situation or max number of levels reached
+                replyScore = configs.evalBoard();
+                if (replyScore == 1 && threatLimit > 0 && configs.forcedWin(opponent, threatLimit) != -1) {
+                    // The opponent moves next and has a forced win beyond the last level
+                    replyScore = opponent == COMPUTER ? 3 : 0;
+                }
+            } else {
+                int remaining = maxLevel - level - 1; // The number of levels searched below the reply
+                boolean bounded = shared != null && !exactOnly; // Whether scores are kept with their depth and bound
+                lookupVal = bounded ? sharedScore(remaining, highest_score, lowest_score)
+                        : configs.repeatedConfiguration(configurations);
+                lookups++;
+                if (lookupVal != -1) {
+                    hits++;
+                    replyScore = lookupVal;
+                } else {
+                    int reduction = reductionFor(level, i);
+                    boolean fullSearch = true;
+                    replyScore = 0;
+                    if (reduction > 0) {
+                        // Late play: a reduced, null-window search tells whether it can beat the score to beat
+                        int childLevel = Math.min(maxLevel, level + 1 + reduction);
+                        if (symbol == COMPUTER) {
+                            replyScore = scoreOf(search(opponent, highest_score, highest_score + 1, childLevel, true));
+                            fullSearch = replyScore > highest_score;
+                        } else {
+                            replyScore = scoreOf(search(opponent, lowest_score - 1, lowest_score, childLevel, true));
+                            fullSearch = replyScore < lowest_score;
+                        }
+                        line = childLevel;
+                    }
+                    if (fullSearch) {
+                        // Deeper boards hold more plays, so this configuration cannot have been added below
+                        replyScore = scoreOf(search(opponent, highest_score, lowest_score, level + 1, reduced));
+                        line = level + 1;
+                        if (reduced) {
+                            // Scores of a reduced search come from a shallower search and are not stored
+                        } else if (bounded) {
+                            int bound = replyScore <= highest_score ? UPPER : replyScore >= lowest_score ? LOWER : EXACT;
+                            configs.shareConfiguration(shared, entry(replyScore, bound, remaining));
+                        } else if (!exactOnly || (replyScore > highest_score && replyScore < lowest_score)) {
+                            configs.addConfiguration(configurations, replyScore);
+                        }
+                    }
+                }
+            }
+            configs.savePlay(row, column, ' ');
+
+            if ((symbol == COMPUTER && replyScore > value) ||
+                (symbol == HUMAN && replyScore < value)) {
+                bestRow = row;
+                bestColumn = column;
+                value = replyScore;
+                pvTable[level][level] = moves[i];
+                int length = line == -1 ? 0 : pvLength[line] - line;
+                if (length > 0) {
+                    System.arraycopy(pvTable[line], line, pvTable[level], level + 1, length);
+                }
+                pvLength[level] = level + 1 + length;
+
+                /* Alpha/beta cut */
+                if (symbol == COMPUTER && value > highest_score) {
+                    highest_score = value;
+                } else if (symbol == HUMAN && value < lowest_score) {
+                    lowest_score = value;
+                }
+
+                if (highest_score >= lowest_score) {
+                    return pack(value, bestRow, bestColumn);
+                }
+            }
+        }
+        return pack(value, bestRow, bestColumn);
+    }
+
+    /**
+     * This function stores the empty squares of the board in the given buffer, as
+     * row * boardSize + column. Without late move reductions they are in row order; with them,
+     * squares next to more plays come first, and then squares closer to the centre.
+     *
+     * @param moves the buffer to fill
+     * @param level the level of the current board, which selects its buffer of sort keys
+     * @return the number of empty squares
+     */
+    private int generatePlays(int[] moves, int level) {
+        int numMoves = 0;
+        for (int row = 0; row < boardSize; row++) {
+            for (int column = 0; column < boardSize; column++) {
+                if (configs.squareIsEmpty(row, column)) {
+                    moves[numMoves++] = row * boardSize + column;
+                }
+            }
+        }
+        if (reductions == null) {
+            return numMoves;
+        }
+
+        int[] keys = keyBuffers[level];
+        for (int i = 0; i < numMoves; i++) {
+            int row = moves[i] / boardSize;
+            int column = moves[i] % boardSize;
+            int neighbours = 0;
+            for (int r = Math.max(0, row - 1); r <= Math.min(boardSize - 1, row + 1); r++) {
+                for (int c = Math.max(0, column - 1); c <= Math.min(boardSize - 1, column + 1); c++) {
+                    if (!configs.squareIsEmpty(r, c)) {
+                        neighbours++;
+                    }
+                }
+            }
+            int centre = boardSize - Math.abs(2 * row - boardSize + 1) - Math.abs(2 * column - boardSize + 1);
+            keys[i] = neighbours * 4 * boardSize + centre;
+        }
+
+        // Insertion sort by decreasing key; stable, so equal squares stay in row order
+        for (int i = 1; i < numMoves; i++) {
+            int move = moves[i];
+            int key = keys[i];
+            int j = i - 1;
+            while (j >= 0 && keys[j] < key) {
+                moves[j + 1] = moves[j];
+                keys[j + 1] = keys[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            keys[j + 1] = key;
+        }
+        return numMoves;
+    }
+
+    /**
+     * This function returns how many levels the search of a play is reduced by, looked up in the
+     * reduction table by the number of levels left below the board and the position of the play in
+     * the ordered list. Both indexes are capped at the last entry of the table.
+     *
+     * @param level     the level of the current board
+     * @param moveIndex the position of the play in the ordered list of plays
+     * @return the number of levels to reduce the search by, 0 for a full search
+     */
+    private int reductionFor(int level, int moveIndex) {
+        if (reductions == null) {
+            return 0;
+        }
+        int[] row = reductions[Math.min(maxLevel - level, reductions.length - 1)];
+        return row.length == 0 ? 0 : row[Math.min(moveIndex, row.length - 1)];
+    }
+}
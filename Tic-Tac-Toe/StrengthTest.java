@@ -0,0 +1,88 @@
+/**
+ * StrengthTest.java
+ * Ali Ajwani
+ * October 27, 2024
+ */
+
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * This class compares the playing strength of a search with late move reductions against the plain
+ * search. The two play a series of games from random openings, switching sides after every game,
+ * and the results are reported from the point of view of the search with reductions, together with
+ * the average number of boards visited and time taken per play by each side. The search with
+ * reductions can be given a different depth, to check that the extra depth it reaches in the same
+ * time is worth it.
+ */
+public class StrengthTest {
+    private static final int OPENING_PLAYS = 2; // The number of random plays made before each game
+
+    /* To run the test type: java StrengthTest size length depth reduced-depth games [seed] */
+    public static void main(String[] args) {
+        if (args.length < 5 || args.length > 6) {
+            System.out.println("Usage: java StrengthTest board-size shape-length depth reduced-depth games [seed]");
+            System.exit(0);
+        }
+        int size = Integer.parseInt(args[0]);
+        int toWin = Integer.parseInt(args[1]);
+        int depth = Integer.parseInt(args[2]);
+        int reducedDepth = Integer.parseInt(args[3]);
+        int games = Integer.parseInt(args[4]);
+        Random random = new Random(args.length == 6 ? Long.parseLong(args[5]) : 1);
+
+        int wins = 0, draws = 0, losses = 0;
+        long[] nodes = new long[2];
+        long[] nanos = new long[2];
+        int[] plays = new int[2];
+
+        for (int game = 0; game < games; game++) {
+            Configurations configs = new Configurations(size, toWin, Math.max(depth, reducedDepth));
+            Search plain = new Search(configs, size, depth);
+            Search reduced = new Search(configs, size, reducedDepth);
+            reduced.setLateMoveReductions(Search.defaultReductions());
+
+            // The search with reductions plays O in even games and X in odd ones
+            char reducedSymbol = game % 2 == 0 ? Search.COMPUTER : Search.HUMAN;
+            char symbol = Search.HUMAN;
+            int i = 0;
+            while (i < OPENING_PLAYS) {
+                int row = random.nextInt(size);
+                int col = random.nextInt(size);
+                if (configs.squareIsEmpty(row, col)) {
+                    configs.savePlay(row, col, symbol);
+                    symbol = symbol == Search.HUMAN ? Search.COMPUTER : Search.HUMAN;
+                    i++;
+                }
+            }
+
+            while (configs.evalBoard() == 1) {
+                int side = symbol == reducedSymbol ? 1 : 0;
+                Search search = side == 1 ? reduced : plain;
+                long start = System.nanoTime();
+                PosPlay pos = search.computerPlay(symbol);
+                nanos[side] += System.nanoTime() - start;
+                nodes[side] += search.getNodeCount();
+                plays[side]++;
+                configs.savePlay(pos.getRow(), pos.getCol(), symbol);
+                symbol = symbol == Search.HUMAN ? Search.COMPUTER : Search.HUMAN;
+            }
+
+            int result = configs.evalBoard();
+            if (result == 2) {
+                draws++;
+            } else if ((result == 3) == (reducedSymbol == Search.COMPUTER)) {
+                wins++;
+            } else {
+                losses++;
+            }
+        }
+
+        System.out.println(String.format(Locale.ROOT, "Reductions (depth %d) vs plain (depth %d): %d wins, %d draws, %d losses",
+                reducedDepth, depth, wins, draws, losses));
+        System.out.println(String.format(Locale.ROOT, "  plain:      %.0f boards, %.2f ms per play",
+                (double) nodes[0] / Math.max(1, plays[0]), nanos[0] / 1e6 / Math.max(1, plays[0])));
+        System.out.println(String.format(Locale.ROOT, "  reductions: %.0f boards, %.2f ms per play",
+                (double) nodes[1] / Math.max(1, plays[1]), nanos[1] / 1e6 / Math.max(1, plays[1])));
+    }
+}
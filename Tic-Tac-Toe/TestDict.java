@@ -8,22 +8,22 @@ public class TestDict {
 	  public static void main(String[] args) {
 
 	    HashDictionary dict = new HashDictionary(13441);
-	    boolean[] test = new boolean[11];
+	    boolean[] test = new boolean[25];
 	    int i,j;
 
 	    if (args.length == 0) 
-			for (i = 0; i < 11; ++i) test[i] = true;
+			for (i = 0; i < 25; ++i) test[i] = true;
 	    else {
 			if (args[0].equals("help")) {
 				System.out.println("Usage: java TestDict, or java TestDict n1 n2 n3 ... ");
-				System.out.println("ni have value 1 - 10, only those tests will be run");
+				System.out.println("ni have value 1 - 24, only those tests will be run");
 				System.exit(0);
 	        }
 
-			for (i = 0; i < 11; ++i) test[i] = false;
+			for (i = 0; i < 25; ++i) test[i] = false;
 			for (i = 0; i < args.length; ++i) {
 				j = Integer.parseInt(args[i]);
-				if (j >= 1 && j <= 10) test[j] = true;
+				if (j >= 1 && j <= 24) test[j] = true;
 			}
 	    }
 
@@ -171,5 +171,512 @@ public class TestDict {
 				System.out.println("Too many collisions: "+collisions);
 			}
 			else  System.out.println("   Test 10 succeeded");
+
+	    // Test 11: save a dictionary of boards to a file and load it back.
+	    // Every record should come back with its score.
+	    passed = true;
+	    if (test[11])
+			try {
+				HashDictionary saved = new HashDictionary(101);
+				for (i = 0; i < 3000; ++i) saved.put(new Data(board(i), i % 4));
+				java.io.File file = java.io.File.createTempFile("dictionary", ".bin");
+				file.deleteOnExit();
+				saved.save(file.getPath());
+				HashDictionary loaded = HashDictionary.load(file.getPath());
+				if (loaded.numRecords() != 3000) passed = false;
+				for (i = 0; i < 3000 && passed; ++i)
+					if (loaded.get(board(i)) != i % 4) passed = false;
+				if (loaded.get(board(3000)) != -1) passed = false;
+				if (passed) System.out.println("   Test 11 succeeded");
+				else System.out.println("***Test 11 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 11 failed");
+			}
+
+	    // Test 12: grow a small table while records are added and removed, so that some
+	    // lookups and removals find their records in the old table still being migrated.
+	    passed = true;
+	    if (test[12])
+			try {
+				HashDictionary growing = new HashDictionary(7);
+				for (i = 0; i < 5000 && passed; ++i) {
+					growing.put(new Data(board(i), i % 4));
+					if ((i / 2) % 10 != 0 && growing.get(board(i / 2)) != (i / 2) % 4) passed = false;
+					if (i % 10 == 9) growing.remove(board(i - 9));
+				}
+				if (growing.numRecords() != 4500) passed = false;
+				for (i = 0; i < 5000 && passed; ++i)
+					if (growing.get(board(i)) != (i % 10 == 0 ? -1 : i % 4)) passed = false;
+				if (passed) System.out.println("   Test 12 succeeded");
+				else System.out.println("***Test 12 failed");
+			} catch (DictionaryException e) {
+				System.out.println("***Test 12 failed");
+			}
+
+	    // Test 13: use the lock-striped dictionary from several threads at once.
+	    // Every thread adds and removes its own boards; putIfAbsent and clear are checked afterwards.
+	    passed = true;
+	    if (test[13])
+			try {
+				final ConcurrentHashDictionary shared = new ConcurrentHashDictionary(64, 8);
+				final boolean[] failed = new boolean[4];
+				Thread[] threads = new Thread[4];
+				for (i = 0; i < 4; ++i) {
+					final int first = i * 4000;
+					final int t = i;
+					threads[i] = new Thread(() -> {
+						for (int k = first; k < first + 4000; ++k) {
+							shared.put(new Data(board(k), k % 4));
+							if (shared.get(board(k)) != k % 4) failed[t] = true;
+							if (k % 2 == 1) shared.remove(board(k));
+						}
+					});
+					threads[i].start();
+				}
+				for (i = 0; i < 4; ++i) {
+					threads[i].join();
+					if (failed[i]) passed = false;
+				}
+				if (shared.numRecords() != 8000) passed = false;
+				for (i = 0; i < 16000 && passed; ++i)
+					if (shared.get(board(i)) != (i % 2 == 1 ? -1 : i % 4)) passed = false;
+				try {
+					shared.put(new Data(board(0), 3));
+					passed = false;
+				} catch (DictionaryException e) {
+					// board(0) is already in the dictionary
+				}
+				if (shared.putIfAbsent(new Data(board(0), 3)) || !shared.putIfAbsent(new Data(board(1), 3))) passed = false;
+				if (shared.get(board(0)) != 0 || shared.get(board(1)) != 3) passed = false;
+				shared.clear();
+				if (shared.numRecords() != 0 || shared.get(board(0)) != -1) passed = false;
+				if (passed) System.out.println("   Test 13 succeeded");
+				else System.out.println("***Test 13 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 13 failed");
+			}
+
+	    // Test 14: fill the off-heap table, then keep removing and adding boards far more times
+	    // than it has slots, so that it has to clear its tombstones; then release it.
+	    passed = true;
+	    if (test[14])
+			try {
+				OffHeapDictionary offHeap = new OffHeapDictionary(100, 9);
+				for (i = 0; i < 100; ++i) offHeap.put(new Data(board(i), i % 4));
+				try {
+					offHeap.put(new Data(board(0), 1));
+					passed = false;
+				} catch (DictionaryException e) {
+					// board(0) is already in the table
+				}
+				for (i = 100; i < 5000 && passed; ++i) {
+					offHeap.remove(board(i - 100));
+					offHeap.put(new Data(board(i), i % 4));
+					if (offHeap.get(board(i - 50)) != (i - 50) % 4) passed = false;
+				}
+				if (offHeap.numRecords() != 100 || offHeap.get(board(4899)) != -1) passed = false;
+				for (i = 4900; i < 5000 && passed; ++i)
+					if (offHeap.get(board(i)) != i % 4) passed = false;
+				offHeap.release();
+				try {
+					offHeap.get(board(4999));
+					passed = false;
+				} catch (IllegalStateException e) {
+					// The table has been released
+				}
+				if (passed) System.out.println("   Test 14 succeeded");
+				else System.out.println("***Test 14 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 14 failed");
+			}
+
+	    // Test 15: look boards up from their packed words, as the search does, in every dictionary.
+	    // The scores must be those stored under the keys of the same boards.
+	    passed = true;
+	    if (test[15])
+			try {
+				DictionaryADT[] tables = {new HashDictionary(7), new ConcurrentHashDictionary(7), new OffHeapDictionary(1000, 16)};
+				for (DictionaryADT table : tables) {
+					Configurations configs = new Configurations(4, 3, 2);
+					for (i = 0; i < 16; ++i) {
+						configs.savePlay(i / 4, i % 4, i % 2 == 0 ? 'X' : 'O');
+						configs.addConfiguration(table, i % 4);
+					}
+					if (configs.repeatedConfiguration(table) != 15 % 4) passed = false;
+					if (table.get(configs.boardToString()) != 15 % 4) passed = false;
+					configs.savePlay(3, 3, ' ');
+					if (configs.repeatedConfiguration(table) != 14 % 4) passed = false;
+					configs.savePlay(3, 3, 'X');
+					if (configs.repeatedConfiguration(table) != -1) passed = false;
+				}
+				if (passed) System.out.println("   Test 15 succeeded");
+				else System.out.println("***Test 15 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 15 failed");
+			}
+
+	    // Test 16: play on the game server over a loopback connection to a free port.
+	    // Bad settings and plays must be refused, and a hint must cover every empty square.
+	    passed = true;
+	    if (test[16])
+			try {
+				final GameServer gameServer = new GameServer(0, 1);
+				final java.net.ServerSocket server = gameServer.open();
+				new Thread(() -> gameServer.serve(server)).start();
+				java.net.Socket client = new java.net.Socket(server.getInetAddress(), server.getLocalPort());
+				java.io.BufferedReader in = new java.io.BufferedReader(new java.io.InputStreamReader(client.getInputStream()));
+				java.io.PrintWriter out = new java.io.PrintWriter(client.getOutputStream(), true);
+				String[] commands = {"MOVE 0 0", "NEW 11 3 2", "NEW 3 3 9", "NEW 3 4 2", "NEW 3 3 4", "MOVE 1 1", "MOVE 1 1", "MOVE 3 0", "HINT 20", "QUIT"};
+				String[] replies = new String[commands.length];
+				for (i = 0; i < commands.length; ++i) {
+					out.println(commands[i]);
+					replies[i] = in.readLine();
+				}
+				client.close();
+				server.close();
+				if (!server.getInetAddress().isLoopbackAddress()) passed = false;
+				for (i = 0; i < 4; ++i)
+					if (!replies[i].startsWith("ERROR")) passed = false;
+				if (!replies[4].equals("OK")) passed = false;
+				if (!replies[5].startsWith("PLAY ") || !replies[5].endsWith(" ONGOING")) passed = false;
+				if (!replies[6].startsWith("ERROR") || !replies[7].startsWith("ERROR")) passed = false;
+				if (!replies[8].startsWith("HINTS ") || replies[8].split("\\(").length - 1 != 7) passed = false;
+				if (!replies[9].equals("BYE")) passed = false;
+				if (passed) System.out.println("   Test 16 succeeded");
+				else System.out.println("***Test 16 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 16 failed");
+			}
+
+	    // Test 17: load snapshots with a negative or too large record count and a cut-off body.
+	    // Each must be refused with an IOException rather than a runtime exception.
+	    passed = true;
+	    if (test[17])
+			try {
+				HashDictionary saved = new HashDictionary(101);
+				for (i = 0; i < 100; ++i) saved.put(new Data(board(i), i % 4));
+				java.io.File file = java.io.File.createTempFile("dictionary", ".bin");
+				file.deleteOnExit();
+				int[] counts = {-1, 1 << 30, 100};
+				for (i = 0; i < counts.length; ++i) {
+					saved.save(file.getPath());
+					try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+						raf.seek(8);
+						raf.writeInt(counts[i]);
+						if (counts[i] == 100) raf.setLength(raf.length() - 10);
+					}
+					try {
+						HashDictionary.load(file.getPath());
+						passed = false;
+					} catch (java.io.IOException e) {
+					}
+				}
+				if (passed) System.out.println("   Test 17 succeeded");
+				else System.out.println("***Test 17 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 17 failed");
+			}
+
+	    // Test 18: traverse every dictionary with forEach, stream, parallelStream and a split spliterator.
+	    // Each must visit every record once, also right after the hash table has started a resize.
+	    passed = true;
+	    if (test[18])
+			try {
+				DictionaryADT[] tables = {new HashDictionary(7), new ConcurrentHashDictionary(7), new OffHeapDictionary(4000, 16)};
+				for (DictionaryADT table : tables) {
+					long sum = 0;
+					for (i = 0; i < 3000; ++i) {
+						table.put(new Data(board(i), i % 4));
+						sum += i % 4;
+						if (i < 300 && table.stream().count() != i + 1) passed = false;
+					}
+					final int[] visits = new int[1];
+					table.forEach(d -> visits[0]++);
+					if (visits[0] != 3000) passed = false;
+					if (table.stream().count() != 3000 || table.parallelStream().count() != 3000) passed = false;
+					if (table.parallelStream().map(Data::getKey).distinct().count() != 3000) passed = false;
+					if (table.parallelStream().mapToLong(Data::getScore).sum() != sum) passed = false;
+					if (table.stream().anyMatch(d -> table.get(d.getKey()) != d.getScore())) passed = false;
+					java.util.Spliterator<Data> rest = table.spliterator();
+					java.util.Spliterator<Data> first = rest.trySplit();
+					visits[0] = 0;
+					if (first == null) passed = false;
+					else first.forEachRemaining(d -> visits[0]++);
+					while (rest.tryAdvance(d -> visits[0]++));
+					if (visits[0] != 3000) passed = false;
+				}
+				if (passed) System.out.println("   Test 18 succeeded");
+				else System.out.println("***Test 18 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 18 failed");
+			}
+
+	    // Test 19: add and look up boards in bulk in every dictionary.
+	    // putAll stops at the first board already present, keeping the ones before it, and getAll
+	    // returns the scores in the order of the keys, with -1 for the missing ones.
+	    passed = true;
+	    if (test[19])
+			try {
+				DictionaryADT[] tables = {new HashDictionary(7), new ConcurrentHashDictionary(7), new OffHeapDictionary(4000, 16)};
+				for (DictionaryADT table : tables) {
+					java.util.List<Data> records = new java.util.ArrayList<>();
+					if (table.putAll(records) != 0) passed = false;
+					for (i = 0; i < 1000; ++i) records.add(new Data(board(i), i % 4));
+					table.put(new Data(board(1000), 1));
+					if (table.putAll(records) < 0 || table.numRecords() != 1001) passed = false;
+					records.clear();
+					records.add(new Data(board(2000), 2));
+					records.add(new Data(board(2001), 3));
+					records.add(new Data(board(5), 0));
+					records.add(new Data(board(2002), 1));
+					try {
+						table.putAll(records);
+						passed = false;
+					} catch (DictionaryException e) {
+						// board(5) is already in the dictionary
+					}
+					if (table.numRecords() != 1003 || table.get(board(2000)) != 2 || table.get(board(2001)) != 3) passed = false;
+					if (table.get(board(2002)) != -1 || table.get(board(5)) != 1) passed = false;
+					java.util.List<BoardKey> keys = new java.util.ArrayList<>();
+					keys.add(BoardKey.of(board(2002)));
+					keys.add(BoardKey.of(board(999)));
+					keys.add(BoardKey.of(board(1000)));
+					keys.add(BoardKey.of(board(0)));
+					for (i = 0; i < 3000; ++i) keys.add(BoardKey.of(board(i * 7919 % 3000)));
+					int[] scores = table.getAll(keys);
+					if (scores.length != 3004 || scores[0] != -1 || scores[1] != 3 || scores[2] != 1 || scores[3] != 0) passed = false;
+					int missing = 0;
+					for (i = 4; i < 3004 && passed; ++i) {
+						if (scores[i] != table.get(keys.get(i))) passed = false;
+						if (scores[i] == -1) missing++;
+					}
+					if (missing != 1997) passed = false;
+				}
+				if (passed) System.out.println("   Test 19 succeeded");
+				else System.out.println("***Test 19 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 19 failed");
+			}
+
+	    // Test 20: traverse the lock-striped dictionary while other threads add boards to it.
+	    // Every board added before the traversal must be seen exactly once, with no error.
+	    passed = true;
+	    if (test[20])
+			try {
+				final ConcurrentHashDictionary shared = new ConcurrentHashDictionary(64, 8);
+				for (i = 0; i < 2000; ++i) shared.put(new Data(board(i), i % 4));
+				final boolean[] failed = new boolean[2];
+				Thread[] writers = new Thread[2];
+				for (i = 0; i < 2; ++i) {
+					final int first = 2000 + i * 4000;
+					final int t = i;
+					writers[i] = new Thread(() -> {
+						try {
+							for (int k = first; k < first + 4000; ++k) shared.put(new Data(board(k), k % 4));
+						} catch (RuntimeException e) {
+							failed[t] = true;
+						}
+					});
+					writers[i].start();
+				}
+				for (j = 0; j < 5; ++j) {
+					java.util.List<BoardKey> seen = shared.parallelStream().map(Data::getKey).collect(java.util.stream.Collectors.toList());
+					java.util.Set<BoardKey> distinct = new java.util.HashSet<>(seen);
+					if (distinct.size() != seen.size() || seen.size() < 2000 || seen.size() > 10000) passed = false;
+					for (i = 0; i < 2000 && passed; ++i)
+						if (!distinct.contains(BoardKey.of(board(i)))) passed = false;
+					final int[] visits = new int[1];
+					shared.forEach(d -> visits[0]++);
+					if (visits[0] < seen.size()) passed = false;
+				}
+				for (i = 0; i < 2; ++i) {
+					writers[i].join();
+					if (failed[i]) passed = false;
+				}
+				if (shared.stream().count() != 10000 || shared.parallelStream().count() != 10000) passed = false;
+				if (passed) System.out.println("   Test 20 succeeded");
+				else System.out.println("***Test 20 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 20 failed");
+			}
+
+	    // Test 21: look for forced wins made of threats on a 5x5 board with four in a row to win.
+	    // O wins on the first board with a chain of threats starting at (1,0), which a single threat
+	    // does not find; on the second board X refutes every threat of O. The search must choose the
+	    // same play with the same score with the threat search on and off.
+	    passed = true;
+	    if (test[21])
+			try {
+				String[] threatBoards = {"OXO    OX      O   X    X", "X    O  XO          OXOX ", "    X    "};
+				Configurations threats = new Configurations(5, 4, 9);
+				threats.loadBoard(threatBoards[0]);
+				int play = threats.forcedWin('O', 3);
+				if (Search.scoreOf(play) != 3 || Search.rowOf(play) != 1 || Search.colOf(play) != 0) passed = false;
+				if (threats.forcedWin('O', 1) != -1 || !threats.boardToString().equals(threatBoards[0])) passed = false;
+				threats.savePlay(1, 0, 'O');
+				if (new Search(threats, 5, 8).computerPlay('X').getScore() != 3) passed = false;
+				threats.loadBoard(threatBoards[1]);
+				if (threats.forcedWin('O', 3) != -1 || threats.forcedWin('O', 5) != -1) passed = false;
+				if (new Search(threats, 5, 7).computerPlay('O').getScore() == 3) passed = false;
+				for (j = 0; j < 3; j += 2) {
+					int size = j == 0 ? 5 : 3;
+					Configurations configs = new Configurations(size, size == 5 ? 4 : 3, 9);
+					configs.loadBoard(threatBoards[j]);
+					Search plain = new Search(configs, size, 9);
+					Search threatened = new Search(configs, size, 9);
+					threatened.setThreatSearch(3);
+					PosPlay off = plain.computerPlay('O');
+					PosPlay on = threatened.computerPlay('O');
+					if (off.getScore() != on.getScore() || off.getRow() != on.getRow() || off.getCol() != on.getCol()) passed = false;
+				}
+				if (passed) System.out.println("   Test 21 succeeded");
+				else System.out.println("***Test 21 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 21 failed");
+			}
+
+	    // Test 22: analyse small boards, asking for fewer and for more plays than there are empty squares.
+	    // The plays must be distinct and sorted best first, and the score of each must be the one
+	    // a full-width search of the play finds.
+	    passed = true;
+	    if (test[22])
+			try {
+				String[] analysed = {"X   O    ", "X    O    X     "};
+				for (j = 0; j < 2; ++j) {
+					int size = j == 0 ? 3 : 4;
+					int depth = j == 0 ? 9 : 4;
+					Configurations configs = new Configurations(size, 3, depth);
+					configs.loadBoard(analysed[j]);
+					char symbol = configs.nextPlayer();
+					char opponent = symbol == 'O' ? 'X' : 'O';
+					int empty = analysed[j].replace("X", "").replace("O", "").length();
+					Search search = new Search(configs, size, depth);
+					Variation[] some = search.analyze(symbol, 3);
+					Variation[] all = search.analyze(symbol, 100);
+					if (some.length != 3 || all.length != empty) passed = false;
+					java.util.Set<Integer> plays = new java.util.HashSet<>();
+					for (i = 0; i < all.length; ++i) {
+						Variation v = all[i];
+						plays.add(v.getRow() * size + v.getCol());
+						if (i > 0 && (symbol == 'O' ? v.getScore() > all[i - 1].getScore() : v.getScore() < all[i - 1].getScore())) passed = false;
+						if (i < 3 && some[i].getScore() != v.getScore()) passed = false;
+						configs.savePlay(v.getRow(), v.getCol(), symbol);
+						if (v.getScore() != fullWidth(configs, size, opponent, 1, depth)) passed = false;
+						configs.savePlay(v.getRow(), v.getCol(), ' ');
+					}
+					if (plays.size() != empty || !configs.boardToString().equals(analysed[j])) passed = false;
+				}
+				if (passed) System.out.println("   Test 22 succeeded");
+				else System.out.println("***Test 22 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 22 failed");
+			}
+
+	    // Test 23: search positions of the benchmark corpus with and without late move reductions.
+	    // The default table must find the same scores as the plain search, and tables that reduce
+	    // no play must find the same plays after visiting the same boards.
+	    passed = true;
+	    if (test[23])
+			try {
+				String[] corpus = {"3|3|9|         ", "3|3|9|X   O    ", "4|3|5|X    O    X     ",
+						"4|4|6|XO   XO         ", "5|4|3|      X     O            ", "6|5|3|              XO    X     O         "};
+				int[][][] unreduced = {new int[0][], {{0}}, {{0, 0, 0}, {}}};
+				for (String position : corpus) {
+					String[] fields = position.split("\\|");
+					int size = Integer.parseInt(fields[0]);
+					int depth = Integer.parseInt(fields[2]);
+					Configurations configs = new Configurations(size, Integer.parseInt(fields[1]), depth);
+					configs.loadBoard(fields[3]);
+					Search plain = new Search(configs, size, depth);
+					PosPlay expected = plain.computerPlay(configs.nextPlayer());
+					Search reduced = new Search(configs, size, depth);
+					reduced.setLateMoveReductions(Search.defaultReductions());
+					if (reduced.computerPlay(configs.nextPlayer()).getScore() != expected.getScore()) passed = false;
+					for (int[][] table : unreduced) {
+						reduced.setLateMoveReductions(table);
+						PosPlay pos = reduced.computerPlay(configs.nextPlayer());
+						if (pos.getScore() != expected.getScore() || pos.getRow() != expected.getRow() || pos.getCol() != expected.getCol()) passed = false;
+						if (reduced.getNodeCount() != plain.getNodeCount()) passed = false;
+					}
+				}
+				if (passed) System.out.println("   Test 23 succeeded");
+				else System.out.println("***Test 23 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 23 failed");
+			}
+
+	    // Test 24: score a small file of positions on two threads, with bad lines and decided boards among them.
+	    // The results must come in input order, with an error for each bad line and a score for
+	    // each decided board, and the analysis must finish.
+	    passed = true;
+	    if (test[24])
+			try {
+				java.io.File input = java.io.File.createTempFile("positions", ".txt");
+				java.io.File output = java.io.File.createTempFile("results", ".txt");
+				input.deleteOnExit();
+				output.deleteOnExit();
+				java.util.List<String> lines = new java.util.ArrayList<>();
+				for (i = 0; i < 40; ++i) lines.add(board(i * 491));
+				lines.set(3, "abcdefghi");
+				lines.set(7, "");
+				lines.set(11, "XO  ");
+				lines.set(15, "XXXOO    ");
+				java.nio.file.Files.write(input.toPath(), lines);
+				final BatchAnalyzer analyzer = new BatchAnalyzer(3, 9);
+				final Exception[] failure = new Exception[1];
+				Thread batch = new Thread(() -> {
+					try {
+						analyzer.analyze(input.getPath(), output.getPath(), 2);
+					} catch (Exception e) {
+						failure[0] = e;
+					}
+				});
+				batch.start();
+				batch.join(60000);
+				if (batch.isAlive() || failure[0] != null) passed = false;
+				java.util.List<String> results = java.nio.file.Files.readAllLines(output.toPath());
+				if (results.size() != lines.size()) passed = false;
+				for (i = 0; i < results.size() && passed; ++i)
+					if (!results.get(i).equals(analyzer.analyzePosition(lines.get(i)))) passed = false;
+				for (i = 3; i < 12 && passed; i += 4)
+					if (!results.get(i).startsWith("ERROR")) passed = false;
+				if (passed && (!results.get(15).equals("- - 0 0") || !results.get(0).matches("\\d \\d 2 \\d+"))) passed = false;
+				if (passed) System.out.println("   Test 24 succeeded");
+				else System.out.println("***Test 24 failed");
+			} catch (Exception e) {
+				System.out.println("***Test 24 failed");
+			}
+	  }
+	
+
+	  /*
+	  ** Returns a different 3x3 board configuration for every n from 0 to 19682.
+	  */
+	  private static String board(int n) {
+	    char[] squares = new char[9];
+	    for (int k = 0; k < 9; ++k) {
+			squares[k] = " XO".charAt(n % 3);
+			n /= 3;
+	    }
+	    return new String(squares);
+	  }
+	
+
+	  /*
+	  ** Returns the score of the board with the given player to move, searched without pruning
+	  ** or a dictionary down to maxLevel as Search does, to check the scores the search finds.
+	  */
+	  private static int fullWidth(Configurations configs, int size, char symbol, int level, int maxLevel) {
+	    if (configs.evalBoard() != 1 || level > maxLevel) return configs.evalBoard();
+	    char opponent = symbol == 'O' ? 'X' : 'O';
+	    int best = symbol == 'O' ? -1 : 4;
+	    for (int k = 0; k < size * size; ++k) {
+			if (!configs.squareIsEmpty(k / size, k % size)) continue;
+			configs.savePlay(k / size, k % size, symbol);
+			int score = fullWidth(configs, size, opponent, level + 1, maxLevel);
+			configs.savePlay(k / size, k % size, ' ');
+			best = symbol == 'O' ? Math.max(best, score) : Math.min(best, score);
+	    }
+	    return best;
 	  }
 	}
\ No newline at end of file
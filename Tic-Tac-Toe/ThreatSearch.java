@@ -0,0 +1,113 @@
+/**
+ * ThreatSearch.java
+ * Ali Ajwani
+ * October 27, 2024
+ *
+ * This class looks for forced wins made only of threats. A threat is a play after which the
+ * attacker can win with its next play, so the defender has to block that square. The search only
+ * considers threats and the defender's forced blocks, which lets it see long forced wins that the
+ * full-width search would need many more levels to find. It succeeds when a threat creates two
+ * winning squares at once (the defender can only block one) or when a chain of single threats
+ * ends in such a double threat or a win.
+ */
+public class ThreatSearch {
+    private Configurations configs; // The board being searched
+    private int boardSize; // The size of the board
+
+    /**
+     * This function constructs a threat search over the given board.
+     *
+     * @param configs   the board to search
+     * @param boardSize the size of the board
+     */
+    public ThreatSearch(Configurations configs, int boardSize) {
+        this.configs = configs;
+        this.boardSize = boardSize;
+    }
+
+    /**
+     * This function looks for a forced win for the given player made of at most maxThreats threats.
+     * The board is left unchanged.
+     *
+     * @param attacker   the symbol of the player to move
+     * @param maxThreats the largest number of threats in the forcing sequence
+     * @return the first play of the forced win packed as in Search.pack, or -1 if none was found
+     */
+    public int forcedWin(char attacker, int maxThreats) {
+        char defender = attacker == Search.COMPUTER ? Search.HUMAN : Search.COMPUTER;
+        int square = search(attacker, defender, maxThreats);
+        if (square == -1) {
+            return -1;
+        }
+        return Search.pack(attacker == Search.COMPUTER ? 3 : 0, square / boardSize, square % boardSize);
+    }
+
+    /**
+     * This function looks for a forced win for the attacker, who is to move.
+     *
+     * @param attacker    the symbol of the attacking player
+     * @param defender    the symbol of the defending player
+     * @param threatsLeft the number of threats the sequence may still use
+     * @return the square (row * boardSize + column) of the attacker's first play, or -1 if none was found
+     */
+    private int search(char attacker, char defender, int threatsLeft) {
+        int win = winningSquare(attacker, -1);
+        if (win != -1) {
+            return win;
+        }
+        if (threatsLeft == 0 || winningSquare(defender, -1) != -1) {
+            // No threats left, or the defender would win instead of answering a threat
+            return -1;
+        }
+
+        for (int row = 0; row < boardSize; row++) {
+            for (int column = 0; column < boardSize; column++) {
+                if (!configs.squareIsEmpty(row, column)) {
+                    continue;
+                }
+                configs.savePlay(row, column, attacker);
+                int block = winningSquare(attacker, -1);
+                boolean forced = false;
+                if (block != -1) {
+                    if (winningSquare(attacker, block) != -1) {
+                        forced = true; // Two winning squares: only one can be blocked
+                    } else {
+                        configs.savePlay(block / boardSize, block % boardSize, defender);
+                        forced = !configs.winsAt(block / boardSize, block % boardSize, defender)
+                                && search(attacker, defender, threatsLeft - 1) != -1;
+                        configs.savePlay(block / boardSize, block % boardSize, ' ');
+                    }
+                }
+                configs.savePlay(row, column, ' ');
+                if (forced) {
+                    return row * boardSize + column;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * This function finds an empty square where the given player would win by playing.
+     *
+     * @param symbol the symbol of the player
+     * @param skip   a square to ignore, or -1
+     * @return the square (row * boardSize + column), or -1 if there is none
+     */
+    private int winningSquare(char symbol, int skip) {
+        for (int row = 0; row < boardSize; row++) {
+            for (int column = 0; column < boardSize; column++) {
+                int square = row * boardSize + column;
+                if (square != skip && configs.squareIsEmpty(row, column)) {
+                    configs.savePlay(row, column, symbol);
+                    boolean wins = configs.winsAt(row, column, symbol);
+                    configs.savePlay(row, column, ' ');
+                    if (wins) {
+                        return square;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+}
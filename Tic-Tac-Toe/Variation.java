@@ -0,0 +1,55 @@
+/**
+ * Variation.java
+ * Ali Ajwani
+ * October 27, 2024
+ *
+ * This class represents a root play found by a multi-line analysis together with its principal
+ * variation: the play itself followed by the plays both players are expected to make after it.
+ * The score is the score of the root play.
+ */
+public class Variation extends PosPlay {
+    private int[] rows; // The rows of the plays of the variation, starting with the root play
+    private int[] cols; // The columns of the plays of the variation
+
+    /**
+     * This function constructs a variation from its plays.
+     *
+     * @param score the score of the root play
+     * @param rows  the rows of the plays, starting with the root play
+     * @param cols  the columns of the plays, starting with the root play
+     */
+    public Variation(int score, int[] rows, int[] cols) {
+        super(score, rows[0], cols[0]);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * This function returns the number of plays in the variation, including the root play.
+     *
+     * @return the length of the variation
+     */
+    public int length() {
+        return rows.length;
+    }
+
+    /**
+     * This function returns the row of a play of the variation.
+     *
+     * @param i the index of the play, 0 for the root play
+     * @return the row of the play
+     */
+    public int getRow(int i) {
+        return rows[i];
+    }
+
+    /**
+     * This function returns the column of a play of the variation.
+     *
+     * @param i the index of the play, 0 for the root play
+     * @return the column of the play
+     */
+    public int getCol(int i) {
+        return cols[i];
+    }
+}